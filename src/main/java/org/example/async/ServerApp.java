@@ -5,15 +5,17 @@ import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import org.example.async.service.AsyncTaskServiceImpl;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class ServerApp {
 
     public static void main(String[] args) throws IOException, InterruptedException {
         int port = 50051;
 
+        AsyncTaskServiceImpl service = new AsyncTaskServiceImpl();
         Server server = NettyServerBuilder
                 .forPort(port)
-                .addService(new AsyncTaskServiceImpl())
+                .addService(service)
                 .build();
 
         server.start();
@@ -22,6 +24,13 @@ public class ServerApp {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down gRPC server...");
             server.shutdown();
+            try {
+                server.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                service.close();
+            }
         }));
 
         server.awaitTermination();
@@ -1,32 +1,109 @@
 package org.example.async.executor;
 
+import org.example.async.TaskType;
 import org.example.async.model.TaskState;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
 
-public class TaskExecutor {
+public class TaskExecutor implements AutoCloseable {
 
-    private final ExecutorService pool =
-            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    private static final int IO_FALLBACK_THREADS = 512;
 
-    public void submit(TaskState task, String payload) {
-        pool.submit(() -> {
+    // CPU-задачи: не больше потоков, чем ядер
+    private final ForkJoinPool cpuPool =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    // IO-задачи: виртуальные потоки (JDK 21+), иначе большой пул платформенных потоков
+    private final ExecutorService ioPool = createIoPool();
+
+    public void submit(TaskState task, String payload, TaskType type) {
+        long workMillis = 500 + payload.length() * 10L;
+
+        switch (type) {
+            case IO_INTENSIVE:
+                runOn(ioPool, task, payload, workMillis);
+                break;
+            case MIXED:
+                // ожидание IO в виртуальном потоке, вычислительная часть в CPU-пуле
+                long ioMillis = workMillis / 2;
+                CompletableFuture
+                        .runAsync(() -> {
+                            task.setStatus(TaskState.Status.RUNNING);
+                            simulateWork(ioMillis);
+                        }, ioPool)
+                        .thenApplyAsync(v -> {
+                            simulateWork(workMillis - ioMillis);
+                            return process(payload);
+                        }, cpuPool)
+                        .whenComplete((result, err) -> complete(task, result, err));
+                break;
+            case CPU_INTENSIVE:
+            default:
+                runOn(cpuPool, task, payload, workMillis);
+                break;
+        }
+    }
+
+    private void runOn(Executor pool, TaskState task, String payload, long workMillis) {
+        pool.execute(() -> {
             try {
                 task.setStatus(TaskState.Status.RUNNING);
 
                 // имитация тяжёлой работы
-                Thread.sleep(500 + payload.length() * 10L);
-
-                String result = "Processed: " + payload.toUpperCase();
-
-                task.setStatus(TaskState.Status.COMPLETED);
-                task.getResultFuture().complete(result);
+                simulateWork(workMillis);
 
+                complete(task, process(payload), null);
             } catch (Exception e) {
-                task.setStatus(TaskState.Status.FAILED);
-                task.getResultFuture().completeExceptionally(e);
+                complete(task, null, e);
             }
         });
     }
+
+    private static String process(String payload) {
+        return "Processed: " + payload.toUpperCase();
+    }
+
+    private static void complete(TaskState task, String result, Throwable err) {
+        if (err != null) {
+            Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+            task.setStatus(TaskState.Status.FAILED);
+            task.getResultFuture().completeExceptionally(cause);
+        } else {
+            task.setStatus(TaskState.Status.COMPLETED);
+            task.getResultFuture().complete(result);
+        }
+    }
+
+    private static void simulateWork(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Новые задачи отклоняются (RejectedExecutionException), уже принятые доводятся до конца.
+     */
+    @Override
+    public void close() {
+        ioPool.shutdown();
+        cpuPool.shutdown();
+    }
+
+    private static ExecutorService createIoPool() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    IO_FALLBACK_THREADS, IO_FALLBACK_THREADS,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
 }
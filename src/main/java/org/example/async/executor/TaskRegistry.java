@@ -2,20 +2,153 @@ package org.example.async.executor;
 
 import org.example.async.model.TaskState;
 
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-public class TaskRegistry {
+public class TaskRegistry implements AutoCloseable {
+
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    private static final int DEFAULT_MAX_ENTRIES = 100_000;
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    public record Stats(int tasks, int completedTasks, long retainedBytes,
+                        long evictedByTtl, long evictedBySize, long deduplicated) {}
+
+    public record Registration(TaskState task, boolean created) {}
+
+    private record Retained(TaskState state, long bytes, long completedAtNanos) {}
 
     private final Map<String, TaskState> tasks = new ConcurrentHashMap<>();
 
+    // завершённые задачи в порядке последнего обращения; только их можно вытеснять
+    private final LinkedHashMap<String, Retained> completed = new LinkedHashMap<>(16, 0.75f, true);
+    private long retainedBytes;
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final LongAdder evictedByTtl = new LongAdder();
+    private final LongAdder evictedBySize = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final ScheduledExecutorService sweeper;
+
+    public TaskRegistry() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public TaskRegistry(Duration ttl, int maxEntries, long maxBytes) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        long sweepMillis = Math.max(100, Math.min(ttl.toMillis() / 2, 60_000));
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-registry-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictExpired, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
     public TaskState create(String id) {
-        TaskState state = new TaskState(id);
-        tasks.put(id, state);
-        return state;
+        return createIfAbsent(id).task();
+    }
+
+    /**
+     * Атомарно регистрирует задачу; если задача с таким id уже есть, возвращает её с {@code created = false}.
+     */
+    public Registration createIfAbsent(String id) {
+        TaskState fresh = new TaskState(id);
+        TaskState existing = tasks.putIfAbsent(id, fresh);
+        if (existing != null) {
+            deduplicated.increment();
+            return new Registration(existing, false);
+        }
+        fresh.getResultFuture().whenComplete((result, err) -> onCompleted(fresh, result, err));
+        return new Registration(fresh, true);
     }
 
     public TaskState get(String id) {
-        return tasks.get(id);
+        TaskState state = tasks.get(id);
+        if (state == null || !state.getResultFuture().isDone()) {
+            return state;
+        }
+        synchronized (this) {
+            Retained retained = completed.get(id); // обновляет порядок LRU
+            if (retained != null && System.nanoTime() - retained.completedAtNanos() > ttlNanos) {
+                evict(id, retained);
+                evictedByTtl.increment();
+                return null;
+            }
+        }
+        return state;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(tasks.size(), completed.size(), retainedBytes,
+                evictedByTtl.sum(), evictedBySize.sum(), deduplicated.sum());
+    }
+
+    private void onCompleted(TaskState state, String result, Throwable err) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * state.getId().length();
+        if (result != null) bytes += 2L * result.length();
+        if (err != null && err.getMessage() != null) bytes += 2L * err.getMessage().length();
+
+        synchronized (this) {
+            // задачу могли заменить под тем же id, пока она выполнялась
+            if (tasks.get(state.getId()) != state) return;
+            Retained previous = completed.put(state.getId(), new Retained(state, bytes, System.nanoTime()));
+            if (previous != null) retainedBytes -= previous.bytes();
+            retainedBytes += bytes;
+            evictOverflow();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Retained>> it = completed.entrySet().iterator();
+        while (it.hasNext() && (tasks.size() > maxEntries || retainedBytes > maxBytes)) {
+            Map.Entry<String, Retained> eldest = it.next();
+            it.remove();
+            release(eldest.getKey(), eldest.getValue());
+            evictedBySize.increment();
+        }
+    }
+
+    private synchronized void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Retained>> it = completed.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Retained> entry = it.next();
+            if (now - entry.getValue().completedAtNanos() > ttlNanos) {
+                it.remove();
+                release(entry.getKey(), entry.getValue());
+                evictedByTtl.increment();
+            }
+        }
+    }
+
+    private void evict(String id, Retained retained) {
+        completed.remove(id);
+        release(id, retained);
+    }
+
+    private void release(String id, Retained retained) {
+        // подписчики awaitResult держат ссылку на TaskState и получат результат и после вытеснения
+        tasks.remove(id, retained.state());
+        retainedBytes -= retained.bytes();
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
     }
 }
@@ -8,17 +8,22 @@ import org.example.async.model.TaskState;
 
 import java.util.UUID;
 
-public class AsyncTaskServiceImpl extends AsyncTaskServiceGrpc.AsyncTaskServiceImplBase {
+public class AsyncTaskServiceImpl extends AsyncTaskServiceGrpc.AsyncTaskServiceImplBase implements AutoCloseable {
 
     private final TaskRegistry registry = new TaskRegistry();
     private final TaskExecutor executor = new TaskExecutor();
 
     @Override
     public void submit(TaskRequest request, StreamObserver<TaskHandle> responseObserver) {
-        String id = UUID.randomUUID().toString();
+        // повтор запроса с тем же task_id возвращает уже существующую задачу, а не запускает её заново
+        String id = request.getTaskId().isEmpty()
+                ? UUID.randomUUID().toString()
+                : request.getTaskId();
 
-        TaskState task = registry.create(id);
-        executor.submit(task, request.getPayload());
+        TaskRegistry.Registration registration = registry.createIfAbsent(id);
+        if (registration.created()) {
+            executor.submit(registration.task(), request.getPayload(), request.getType());
+        }
 
         responseObserver.onNext(TaskHandle.newBuilder()
                 .setTaskId(id)
@@ -57,10 +62,33 @@ public class AsyncTaskServiceImpl extends AsyncTaskServiceGrpc.AsyncTaskServiceI
         });
     }
 
+    @Override
+    public void getRegistryStats(RegistryStatsRequest request, StreamObserver<RegistryStats> responseObserver) {
+        TaskRegistry.Stats stats = registry.stats();
+        responseObserver.onNext(RegistryStats.newBuilder()
+                .setTasks(stats.tasks())
+                .setCompletedTasks(stats.completedTasks())
+                .setRetainedBytes(stats.retainedBytes())
+                .setEvictedByTtl(stats.evictedByTtl())
+                .setEvictedBySize(stats.evictedBySize())
+                .setDeduplicatedSubmissions(stats.deduplicated())
+                .build());
+        responseObserver.onCompleted();
+    }
+
     private TaskResult toProto(TaskState task, String result) {
         return TaskResult.newBuilder()
                 .setTaskId(task.getId())
                 .setStatus(TaskStatus.valueOf(task.getStatus().name()))
                 .build();
     }
+
+    /**
+     * Останавливает пулы исполнителя и очистку реестра; вызывать после остановки сервера.
+     */
+    @Override
+    public void close() {
+        executor.close();
+        registry.close();
+    }
 }
@@ -0,0 +1,151 @@
+package org.example.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.example.search.embedding.EmbeddingProvider;
+import org.example.search.embedding.HashWordVectors;
+import org.example.search.embedding.VectorMath;
+import org.example.search.embedding.WordVectorEmbeddingProvider;
+import org.example.search.service.FlatVectorIndex;
+import org.example.search.service.HnswCodec;
+import org.example.search.service.Subtasks;
+import org.example.search.service.VectorEncoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FLAT_VECTOR (точный перебор off-heap матрицы кусками в пуле) против HNSW на одних и тех же векторах.
+ * Recall@k HNSW относительно точного ответа печатается при подготовке каждого набора параметров.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class FlatVectorJmhBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 200;
+    private static final int VOCABULARY = 5_000;
+    private static final int WORDS_PER_DOC = 20;
+
+    @Param({"10000", "100000"})
+    private int numDocs;
+
+    @Param({"50", "200"})
+    private int numCandidates;
+
+    @Param({"16384"})
+    private int chunkRows;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private ExecutorService scanPool;
+    private FlatVectorIndex flat;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        EmbeddingProvider provider = new WordVectorEmbeddingProvider(new HashWordVectors(128));
+        Random rnd = new Random(42);
+
+        scanPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        flat = new FlatVectorIndex(provider.dimension(), VectorMath.best(), new Subtasks(scanPool), chunkRows);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig().setCodec(new HnswCodec(16, 100)))) {
+            for (int i = 0; i < numDocs; i++) {
+                float[] v = provider.embed(randomText(rnd, WORDS_PER_DOC));
+                String id = String.valueOf(i);
+                Document doc = new Document();
+                doc.add(new StoredField("id", id));
+                doc.add(VectorEncoding.FLOAT32.field("embedding", v));
+                writer.addDocument(doc);
+                flat.add(id, v);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = provider.embed(randomText(rnd, 3));
+        }
+        System.out.printf("hnsw recall@%d = %.4f%n", K, recall());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        scanPool.shutdown();
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs hnsw() throws IOException {
+        return hnsw(queries[next++ % QUERIES]);
+    }
+
+    @Benchmark
+    public List<FlatVectorIndex.Hit> flat() throws IOException {
+        return flat.search(queries[next++ % QUERIES], K);
+    }
+
+    private TopDocs hnsw(float[] query) throws IOException {
+        return searcher.search(VectorEncoding.FLOAT32.query("embedding", query, Math.max(K, numCandidates)), K);
+    }
+
+    private double recall() throws IOException {
+        StoredFields storedFields = reader.storedFields();
+        long found = 0;
+        for (float[] query : queries) {
+            Set<String> expected = new HashSet<>();
+            for (FlatVectorIndex.Hit hit : flat.search(query, K)) {
+                expected.add(hit.id());
+            }
+            for (ScoreDoc sd : hnsw(query).scoreDocs) {
+                if (expected.contains(storedFields.document(sd.doc).get("id"))) found++;
+            }
+        }
+        return (double) found / ((long) QUERIES * K);
+    }
+
+    private static String randomText(Random rnd, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append('w').append(rnd.nextInt(VOCABULARY)).append(' ');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{
+                "org.example.search.FlatVectorJmhBenchmark",
+                "-wi", "3",
+                "-i", "5",
+                "-f", "1",
+                "-bm", "avgt",
+                "-tu", "us"
+        });
+    }
+}
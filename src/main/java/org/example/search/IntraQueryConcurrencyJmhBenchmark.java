@@ -0,0 +1,122 @@
+package org.example.search;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.example.search.service.SearchExecutors;
+import org.example.search.service.SearchServiceConfig;
+import org.example.search.service.SlicingSearcherFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка одного BM25-запроса (p50/p99 в режиме SampleTime) на большом индексе
+ * с параллельным обходом срезов сегментов (intraQueryThreads > 0) и без него. Запрос выполняется
+ * тем же {@link SlicingSearcherFactory#topScoreDocs}, что и текстовый поиск сервиса.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntraQueryConcurrencyJmhBenchmark {
+
+    private static final int VOCABULARY = 5_000;
+    private static final int WORDS_PER_DOC = 20;
+    private static final int TOP_K = 10;
+
+    @Param({"1000000"})
+    private int numDocs;
+
+    @Param({"0", "4", "8"})
+    private int intraQueryThreads;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private ExecutorService sliceExecutor;
+    private Query[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SearchServiceConfig config = SearchServiceConfig.builder()
+                .intraQueryThreads(intraQueryThreads)
+                .maxMergedSegmentMb(16)
+                .build();
+        StandardAnalyzer analyzer = new StandardAnalyzer();
+        Random rnd = new Random(42);
+
+        directory = new ByteBuffersDirectory();
+        IndexWriterConfig writerConfig = new IndexWriterConfig(analyzer)
+                .setRAMBufferSizeMB(config.ramBufferSizeMb())
+                .setMergePolicy(SearchExecutors.mergePolicy(config));
+        try (IndexWriter writer = new IndexWriter(directory, writerConfig)) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new TextField("content", randomText(rnd, WORDS_PER_DOC), Field.Store.NO));
+                writer.addDocument(doc);
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        sliceExecutor = SearchExecutors.slicePool(config);
+        searcher = new SlicingSearcherFactory(sliceExecutor, config.maxDocsPerSlice(), config.maxSegmentsPerSlice())
+                .newSearcher(reader, null);
+        System.out.printf("segments = %d, slices = %d%n", reader.leaves().size(),
+                sliceExecutor == null ? 1 : searcher.getSlices().length);
+
+        QueryBuilder builder = new QueryBuilder(analyzer);
+        queries = new Query[256];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = builder.createBooleanQuery("content", randomText(rnd, 2));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (sliceExecutor != null) {
+            sliceExecutor.shutdown();
+        }
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs textSearch() throws IOException {
+        return SlicingSearcherFactory.topScoreDocs(searcher, queries[next++ & (queries.length - 1)], TOP_K, null);
+    }
+
+    private static String randomText(Random rnd, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append('w').append(rnd.nextInt(VOCABULARY)).append(' ');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{
+                "org.example.search.IntraQueryConcurrencyJmhBenchmark",
+                "-wi", "3",
+                "-i", "5",
+                "-f", "1",
+                "-bm", "sample",
+                "-tu", "ms"
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.search;
+
+import org.example.search.engine.InMemorySearchEngine;
+import org.example.search.engine.LuceneSearchEngine;
+import org.example.search.engine.SearchEngine;
+import org.example.search.model.IndexedDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Движки {@link SearchEngine} напрямую, без gRPC, на тех же корпусах, что и {@link SearchJmhBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchEngineJmhBenchmark {
+
+    @Param({"lucene", "in-memory"})
+    private String engineType;
+
+    @Param({"100", "1000", "10000"})
+    private int numDocs;
+
+    @Param({"100", "500", "1000"})
+    private int wordsPerDoc;
+
+    private SearchEngine engine;
+    private Random rnd;
+    private int docId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        engine = engineType.equals("lucene") ? new LuceneSearchEngine() : new InMemorySearchEngine();
+        rnd = new Random(42);
+
+        for (int i = 0; i < numDocs; i++) {
+            engine.addDocument(new IndexedDocument("warmup-" + i, "Warmup " + i, randomText(wordsPerDoc)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        engine.close();
+    }
+
+    @Benchmark
+    public List<SearchEngine.SearchResultItem> textSearch() throws Exception {
+        String q = SearchJmhBenchmark.WORDS[rnd.nextInt(SearchJmhBenchmark.WORDS.length)]
+                + " " + SearchJmhBenchmark.WORDS[rnd.nextInt(SearchJmhBenchmark.WORDS.length)];
+        return engine.search(q, 10);
+    }
+
+    @Benchmark
+    public void addDocument() throws Exception {
+        engine.addDocument(new IndexedDocument("doc-" + docId, "Title " + docId++, randomText(wordsPerDoc)));
+    }
+
+    private String randomText(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append(SearchJmhBenchmark.WORDS[rnd.nextInt(SearchJmhBenchmark.WORDS.length)]).append(' ');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{
+                "org.example.search.SearchEngineJmhBenchmark",
+                "-wi", "3",
+                "-i", "5",
+                "-f", "1",
+                "-bm", "avgt",
+                "-tu", "us"
+        });
+    }
+}
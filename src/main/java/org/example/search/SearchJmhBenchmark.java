@@ -30,7 +30,7 @@ public class SearchJmhBenchmark {
     @Param({"100", "500", "1000"})
     private int wordsPerDoc;
 
-    private static final String[] WORDS = {
+    static final String[] WORDS = {
             "distributed", "system", "vector", "search", "grpc",
             "asynchronous", "java", "index", "lucene", "cloud",
             "scalable", "performance", "benchmark", "semantic",
@@ -2,15 +2,52 @@ package org.example.search;
 
 import io.grpc.Server;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.example.search.embedding.HashWordVectors;
+import org.example.search.embedding.MappedWordVectors;
+import org.example.search.embedding.WordVectorEmbeddingProvider;
+import org.example.search.engine.LuceneSearchEngine;
+import org.example.search.service.SearchExecution;
+import org.example.search.service.SearchServiceConfig;
 import org.example.search.service.SearchServiceImpl;
 
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 public class SearchServerApp {
 
+    private static final int WORD_VECTOR_CACHE_SIZE = 65_536;
+
     public static void main(String[] args) throws Exception {
         int port = 50051;
 
+        SearchServiceConfig.Builder config = SearchServiceConfig.builder();
+        String indexPath = System.getProperty("search.index.path");
+        if (indexPath != null && !indexPath.isBlank()) {
+            config.indexPath(Path.of(indexPath));
+        }
+        String execution = System.getProperty("search.execution");
+        if (execution != null && !execution.isBlank()) {
+            config.searchExecution(SearchExecution.valueOf(execution.trim().toUpperCase()));
+        }
+        String wordVectors = System.getProperty("search.embedding.vectors");
+        if (wordVectors != null && !wordVectors.isBlank()) {
+            MappedWordVectors vectors = MappedWordVectors.load(Path.of(wordVectors), WORD_VECTOR_CACHE_SIZE);
+            System.out.println("Loaded " + vectors.vocabularySize() + " word vectors from " + wordVectors);
+            config.embeddingProvider(new WordVectorEmbeddingProvider(
+                    vectors, new HashWordVectors(vectors.dimension())));
+        }
+
+        // lucene — простой движок с commit на каждый документ, для сравнения с движком по умолчанию
+        String engine = System.getProperty("search.engine", "nrt").trim();
+        SearchServiceImpl service;
+        if (engine.equalsIgnoreCase("lucene")) {
+            service = new SearchServiceImpl(indexPath != null && !indexPath.isBlank()
+                    ? new LuceneSearchEngine(Path.of(indexPath)) : new LuceneSearchEngine(), config.build());
+        } else {
+            service = new SearchServiceImpl(config.build());
+        }
         Server server = NettyServerBuilder.forPort(port)
-                .addService(new SearchServiceImpl())
+                .addService(service)
                 .build()
                 .start();
 
@@ -19,6 +56,12 @@ public class SearchServerApp {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down search server...");
             server.shutdown();
+            try {
+                server.awaitTermination(10, TimeUnit.SECONDS);
+                service.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }));
 
         server.awaitTermination();
@@ -2,6 +2,9 @@ package org.example.search;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import org.example.search.client.SearchClient;
+
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.*;
@@ -34,7 +37,7 @@ public class SearchStressTest {
         SearchServiceGrpc.SearchServiceBlockingStub stub =
                 SearchServiceGrpc.newBlockingStub(channel);
 
-        preloadDocuments(stub, 50_000);
+        preloadDocuments(50_000);
 
         System.out.println("Preload finished. Starting load test...");
 
@@ -107,21 +110,34 @@ public class SearchStressTest {
         }
     }
 
-    private static void preloadDocuments(SearchServiceGrpc.SearchServiceBlockingStub stub,
-                                         int count) {
+    private static void preloadDocuments(int count) {
         Random rnd = new Random(42);
-        for (int i = 0; i < count; i++) {
-            String id = "preload-" + i;
-            String title = "Document " + i;
-            String content = randomText(rnd, 50);
-
-            AddDocumentRequest req = AddDocumentRequest.newBuilder()
-                    .setId(id)
-                    .setTitle(title)
-                    .setContent(content)
-                    .build();
-
-            stub.addDocument(req);
+        Iterator<AddDocumentRequest> documents = new Iterator<>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public AddDocumentRequest next() {
+                int n = i++;
+                return AddDocumentRequest.newBuilder()
+                        .setId("preload-" + n)
+                        .setTitle("Document " + n)
+                        .setContent(randomText(rnd, 50))
+                        .build();
+            }
+        };
+
+        SearchClient client = new SearchClient(HOST, PORT);
+        try {
+            BulkAddResponse response = client.bulkAddDocuments(documents);
+            System.out.println("Preloaded: " + response.getAccepted()
+                    + ", rejected: " + response.getRejected());
+        } finally {
+            client.shutdown();
         }
     }
 
@@ -0,0 +1,93 @@
+package org.example.search;
+
+import org.example.search.embedding.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class VectorMathJmhBenchmark {
+
+    @Param({"128", "384", "768"})
+    private int dimension;
+
+    @Param({"scalar", "simd"})
+    private String impl;
+
+    private VectorMath math;
+    private EmbeddingProvider provider;
+    private float[] a;
+    private float[] b;
+    private float[] acc;
+    private String text;
+
+    private static final String[] WORDS = {
+            "distributed", "system", "vector", "search", "grpc",
+            "asynchronous", "java", "index", "lucene", "cloud",
+            "scalable", "performance", "benchmark", "semantic",
+            "architecture", "network", "service", "client", "server"
+    };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        math = impl.equals("simd") ? new SimdVectorMath() : new ScalarVectorMath();
+        provider = new WordVectorEmbeddingProvider(new HashWordVectors(dimension, math), null, math);
+
+        Random rnd = new Random(42);
+        a = new float[dimension];
+        b = new float[dimension];
+        acc = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            a[i] = rnd.nextFloat();
+            b[i] = rnd.nextFloat();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+        }
+        text = sb.toString();
+    }
+
+    @Benchmark
+    public float[] add() {
+        math.add(acc, a, 0, dimension);
+        return acc;
+    }
+
+    @Benchmark
+    public float dot() {
+        return math.dot(a, 0, b, 0, dimension);
+    }
+
+    @Benchmark
+    public float[] normalize() {
+        System.arraycopy(a, 0, acc, 0, dimension);
+        math.normalize(acc, dimension);
+        return acc;
+    }
+
+    @Benchmark
+    public void embed100Words(Blackhole bh) {
+        provider.embed(text, acc);
+        bh.consume(acc);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{
+                "org.example.search.VectorMathJmhBenchmark",
+                "-wi", "3",
+                "-i", "5",
+                "-f", "1",
+                "-bm", "avgt",
+                "-tu", "ns"
+        });
+    }
+}
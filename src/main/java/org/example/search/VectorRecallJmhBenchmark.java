@@ -0,0 +1,175 @@
+package org.example.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.example.search.embedding.EmbeddingProvider;
+import org.example.search.embedding.HashWordVectors;
+import org.example.search.embedding.VectorMath;
+import org.example.search.embedding.WordVectorEmbeddingProvider;
+import org.example.search.service.HnswCodec;
+import org.example.search.service.VectorEncoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recall@k и задержка HNSW-поиска в зависимости от maxConn/beamWidth/numCandidates и формата векторов.
+ * Эталон — точный перебор всех векторов; recall печатается при подготовке каждого набора параметров.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class VectorRecallJmhBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 200;
+    private static final int VOCABULARY = 5_000;
+    private static final int WORDS_PER_DOC = 20;
+
+    @Param({"10000", "100000"})
+    private int numDocs;
+
+    @Param({"16", "32"})
+    private int maxConn;
+
+    @Param({"100", "200"})
+    private int beamWidth;
+
+    @Param({"10", "50", "200"})
+    private int numCandidates;
+
+    @Param({"FLOAT32", "INT8"})
+    private VectorEncoding encoding;
+
+    private final VectorMath math = VectorMath.best();
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private int dimension;
+    private float[] matrix;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        EmbeddingProvider provider = new WordVectorEmbeddingProvider(new HashWordVectors(128));
+        dimension = provider.dimension();
+        Random rnd = new Random(42);
+
+        directory = new ByteBuffersDirectory();
+        // LogByteSizeMergePolicy сливает только соседние сегменты, поэтому после forceMerge(1) docId == номер строки
+        IndexWriterConfig writerConfig = new IndexWriterConfig()
+                .setCodec(new HnswCodec(maxConn, beamWidth))
+                .setMergePolicy(new LogByteSizeMergePolicy());
+        matrix = new float[numDocs * dimension];
+        try (IndexWriter writer = new IndexWriter(directory, writerConfig)) {
+            for (int i = 0; i < numDocs; i++) {
+                float[] v = provider.embed(randomText(rnd, WORDS_PER_DOC));
+                System.arraycopy(v, 0, matrix, i * dimension, dimension);
+                Document doc = new Document();
+                doc.add(encoding.field("embedding", v));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = provider.embed(randomText(rnd, 3));
+        }
+        System.out.printf("recall@%d = %.4f%n", K, recall());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs hnsw() throws IOException {
+        return search(queries[next++ % QUERIES]);
+    }
+
+    @Benchmark
+    public int[] bruteForce() {
+        return exactTopK(queries[next++ % QUERIES]);
+    }
+
+    private TopDocs search(float[] query) throws IOException {
+        return searcher.search(encoding.query("embedding", query, Math.max(K, numCandidates)), K);
+    }
+
+    private double recall() throws IOException {
+        long found = 0;
+        for (float[] query : queries) {
+            Set<Integer> expected = new HashSet<>();
+            for (int doc : exactTopK(query)) {
+                expected.add(doc);
+            }
+            for (ScoreDoc sd : search(query).scoreDocs) {
+                if (expected.contains(sd.doc)) found++;
+            }
+        }
+        return (double) found / ((long) QUERIES * K);
+    }
+
+    /**
+     * Точные k ближайших: векторы нормированы, поэтому порядок по скалярному произведению совпадает с евклидовым.
+     */
+    private int[] exactTopK(float[] query) {
+        int[] top = new int[K];
+        float[] scores = new float[K];
+        Arrays.fill(scores, Float.NEGATIVE_INFINITY);
+        for (int doc = 0; doc < numDocs; doc++) {
+            float score = math.dot(query, 0, matrix, doc * dimension, dimension);
+            if (score <= scores[K - 1]) continue;
+            int pos = K - 1;
+            while (pos > 0 && scores[pos - 1] < score) {
+                scores[pos] = scores[pos - 1];
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            scores[pos] = score;
+            top[pos] = doc;
+        }
+        return top;
+    }
+
+    private static String randomText(Random rnd, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append('w').append(rnd.nextInt(VOCABULARY)).append(' ');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{
+                "org.example.search.VectorRecallJmhBenchmark",
+                "-wi", "3",
+                "-i", "5",
+                "-f", "1",
+                "-bm", "avgt",
+                "-tu", "us"
+        });
+    }
+}
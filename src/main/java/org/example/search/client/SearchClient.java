@@ -2,20 +2,27 @@ package org.example.search.client;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import org.example.search.*;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class SearchClient {
 
     private final ManagedChannel channel;
     private final SearchServiceGrpc.SearchServiceBlockingStub blockingStub;
+    private final SearchServiceGrpc.SearchServiceStub asyncStub;
 
     public SearchClient(String host, int port) {
         channel = ManagedChannelBuilder.forAddress(host, port)
                 .usePlaintext()
                 .build();
         blockingStub = SearchServiceGrpc.newBlockingStub(channel);
+        asyncStub = SearchServiceGrpc.newStub(channel);
     }
 
     public boolean addDocument(String id, String title, String content) {
@@ -28,15 +35,118 @@ public class SearchClient {
         return response.getSuccess();
     }
 
+    /**
+     * Документ с метаданными для фильтров: тегами и числовыми атрибутами.
+     */
+    public boolean addDocument(String id, String title, String content, List<String> tags, Map<String, Double> numbers) {
+        AddDocumentRequest request = AddDocumentRequest.newBuilder()
+                .setId(id)
+                .setTitle(title)
+                .setContent(content)
+                .addAllTags(tags)
+                .putAllNumbers(numbers)
+                .build();
+        AddDocumentResponse response = blockingStub.addDocument(request);
+        return response.getSuccess();
+    }
+
+    public boolean upsertDocument(String id, String title, String content) {
+        AddDocumentRequest request = AddDocumentRequest.newBuilder()
+                .setId(id)
+                .setTitle(title)
+                .setContent(content)
+                .build();
+        AddDocumentResponse response = blockingStub.upsertDocument(request);
+        return response.getSuccess();
+    }
+
+    public boolean deleteDocument(String id) {
+        DeleteDocumentResponse response = blockingStub.deleteDocument(DeleteDocumentRequest.newBuilder()
+                .setId(id)
+                .build());
+        return response.getSuccess();
+    }
+
+    public BulkAddResponse bulkAddDocuments(Iterator<AddDocumentRequest> documents) {
+        CompletableFuture<BulkAddResponse> future = new CompletableFuture<>();
+
+        asyncStub.bulkAddDocuments(new ClientResponseObserver<AddDocumentRequest, BulkAddResponse>() {
+            private boolean completed;
+
+            @Override
+            public void beforeStart(ClientCallStreamObserver<AddDocumentRequest> requestStream) {
+                // пишем в поток только пока транспорт готов принимать сообщения
+                requestStream.setOnReadyHandler(() -> {
+                    while (requestStream.isReady() && documents.hasNext()) {
+                        requestStream.onNext(documents.next());
+                    }
+                    if (!documents.hasNext() && !completed) {
+                        completed = true;
+                        requestStream.onCompleted();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(BulkAddResponse value) {
+                future.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() { }
+        });
+
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new RuntimeException("Error during bulk add", e);
+        }
+    }
+
     public List<SearchResult> search(String query, SearchMethod method) {
         SearchRequest request = SearchRequest.newBuilder()
                 .setQuery(query)
                 .setMethod(method)
                 .build();
+        return search(request);
+    }
+
+    public List<SearchResult> search(SearchRequest request) {
         SearchResponse response = blockingStub.search(request);
         return response.getResultsList();
     }
 
+    /**
+     * Страница результатов вместе с курсором следующей страницы ({@code next_cursor}).
+     */
+    public SearchResponse searchPage(SearchRequest request) {
+        return blockingStub.search(request);
+    }
+
+    /**
+     * Результаты приходят по мере поиска; блокирующий итератор запрашивает следующее сообщение,
+     * только когда предыдущее прочитано, поэтому медленный клиент притормаживает сервер.
+     */
+    public Iterator<SearchResult> searchStream(SearchRequest request) {
+        return blockingStub.searchStream(request);
+    }
+
+    public List<SearchResponse> batchSearch(List<SearchRequest> requests) {
+        BatchSearchResponse response = blockingStub.batchSearch(BatchSearchRequest.newBuilder()
+                .addAllRequests(requests)
+                .build());
+        return response.getResponsesList();
+    }
+
+    public StatsResponse getStats() {
+        return blockingStub.getStats(StatsRequest.getDefaultInstance());
+    }
+
     public void shutdown() {
         channel.shutdown();
     }
@@ -0,0 +1,17 @@
+package org.example.search.embedding;
+
+public interface EmbeddingProvider {
+
+    int dimension();
+
+    /**
+     * Записывает L2-нормированный вектор текста в {@code out}, длина которого равна {@link #dimension()}.
+     */
+    void embed(CharSequence text, float[] out);
+
+    default float[] embed(CharSequence text) {
+        float[] out = new float[dimension()];
+        embed(text, out);
+        return out;
+    }
+}
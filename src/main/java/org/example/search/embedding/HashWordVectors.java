@@ -0,0 +1,42 @@
+package org.example.search.embedding;
+
+/**
+ * Псевдо-векторы слов из хеша токена: компонента j равна sin((hash + 31 * j) & 0xFF).
+ * <p>
+ * Так как 31 обратимо по модулю 256, индекс (hash + 31 * j) & 0xFF = 31 * (s + j) & 0xFF,
+ * где s = hash * 31^-1. Поэтому вектор любого токена — непрерывный срез таблицы
+ * {@code TABLE[k] = sin(31 * k & 0xFF)} начиная с s, и его можно прибавлять векторными инструкциями.
+ */
+public class HashWordVectors implements WordVectors {
+
+    private static final int INVERSE_31 = 223; // 31 * 223 = 6913 ≡ 1 (mod 256)
+
+    private final int dimension;
+    private final float[] table;
+    private final VectorMath math;
+
+    public HashWordVectors(int dimension) {
+        this(dimension, VectorMath.best());
+    }
+
+    public HashWordVectors(int dimension, VectorMath math) {
+        this.dimension = dimension;
+        this.math = math;
+        this.table = new float[256 + dimension];
+        for (int k = 0; k < table.length; k++) {
+            table[k] = (float) Math.sin((31 * k) & 0xFF);
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public boolean addTo(CharSequence text, int start, int end, int hash, float[] acc) {
+        int offset = (hash * INVERSE_31) & 0xFF;
+        math.add(acc, table, offset, dimension);
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.search.embedding;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Предобученные векторы слов в бинарном формате word2vec, отображённые в память:
+ * заголовок "{@code <словарь> <размерность>\n"}, затем для каждого слова
+ * "{@code <слово> }" и размерность float32 little-endian.
+ */
+public class MappedWordVectors implements WordVectors {
+
+    private static final float[] UNKNOWN = new float[0];
+
+    private final MappedByteBuffer buffer;
+    private final int dimension;
+    private final Map<String, Integer> offsets;
+    private final TokenVectorCache cache;
+    private final VectorMath math = VectorMath.best();
+
+    private MappedWordVectors(MappedByteBuffer buffer, int dimension,
+                              Map<String, Integer> offsets, int cacheSize) {
+        this.buffer = buffer;
+        this.dimension = dimension;
+        this.offsets = offsets;
+        this.cache = new TokenVectorCache(cacheSize);
+    }
+
+    public static MappedWordVectors load(Path path, int cacheSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Word vector file is larger than 2 GB: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            String[] header = readUntil(buffer, (byte) '\n').trim().split(" ");
+            int vocabulary = Integer.parseInt(header[0]);
+            int dimension = Integer.parseInt(header[1]);
+
+            Map<String, Integer> offsets = new HashMap<>(vocabulary * 4 / 3 + 1);
+            for (int i = 0; i < vocabulary; i++) {
+                String word = readUntil(buffer, (byte) ' ').trim().toLowerCase(Locale.ROOT);
+                offsets.putIfAbsent(word, buffer.position());
+                buffer.position(buffer.position() + dimension * Float.BYTES);
+            }
+            return new MappedWordVectors(buffer, dimension, offsets, cacheSize);
+        }
+    }
+
+    private static String readUntil(MappedByteBuffer buffer, byte delimiter) {
+        int start = buffer.position();
+        while (buffer.get() != delimiter) {
+            // пропускаем байты слова
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public int vocabularySize() {
+        return offsets.size();
+    }
+
+    public TokenVectorCache cache() {
+        return cache;
+    }
+
+    @Override
+    public boolean addTo(CharSequence text, int start, int end, int hash, float[] acc) {
+        float[] vector = cache.get(text, start, end, hash);
+        if (vector == null) {
+            vector = load(TextTokenizer.lowerCaseToken(text, start, end), hash);
+        }
+        if (vector == UNKNOWN) return false;
+
+        math.add(acc, vector, 0, dimension);
+        return true;
+    }
+
+    private float[] load(String token, int hash) {
+        Integer offset = offsets.get(token);
+        float[] vector = UNKNOWN;
+        if (offset != null) {
+            vector = new float[dimension];
+            for (int j = 0; j < dimension; j++) {
+                vector[j] = buffer.getFloat(offset + j * Float.BYTES);
+            }
+        }
+        cache.put(token, hash, vector);
+        return vector;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.search.embedding;
+
+import java.nio.ByteBuffer;
+
+public class ScalarVectorMath implements VectorMath {
+
+    @Override
+    public void add(float[] acc, float[] src, int srcOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            acc[i] += src[srcOffset + i];
+        }
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float squareDistance(float[] q, ByteBuffer data, int byteOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            float d = q[i] - data.getFloat(byteOffset + i * Float.BYTES);
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    public void normalize(float[] v, int length) {
+        float norm = (float) Math.sqrt(dot(v, 0, v, 0, length));
+        if (norm > 1e-6f) {
+            for (int i = 0; i < length; i++) v[i] /= norm;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.search.embedding;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Реализация на jdk.incubator.vector; загружается только через {@link VectorMath#best()},
+ * когда модуль подключён.
+ */
+public class SimdVectorMath implements VectorMath {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(float[] acc, float[] src, int srcOffset, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector a = FloatVector.fromArray(SPECIES, acc, i);
+            FloatVector b = FloatVector.fromArray(SPECIES, src, srcOffset + i);
+            a.add(b).intoArray(acc, i);
+        }
+        for (; i < length; i++) {
+            acc[i] += src[srcOffset + i];
+        }
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = x.fma(y, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public float squareDistance(float[] q, ByteBuffer data, int byteOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, q, i);
+            FloatVector y = FloatVector.fromByteBuffer(SPECIES, data, byteOffset + i * Float.BYTES, ByteOrder.nativeOrder());
+            FloatVector d = x.sub(y);
+            sum = d.fma(d, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float d = q[i] - data.getFloat(byteOffset + i * Float.BYTES);
+            result += d * d;
+        }
+        return result;
+    }
+
+    @Override
+    public void normalize(float[] v, int length) {
+        float norm = (float) Math.sqrt(dot(v, 0, v, 0, length));
+        if (norm <= 1e-6f) return;
+
+        float scale = 1f / norm;
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, v, i).mul(scale).intoArray(v, i);
+        }
+        for (; i < length; i++) {
+            v[i] *= scale;
+        }
+    }
+}
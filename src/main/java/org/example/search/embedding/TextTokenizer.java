@@ -0,0 +1,63 @@
+package org.example.search.embedding;
+
+/**
+ * Разбивает текст на токены без регулярных выражений и промежуточных строк. Границы те же, что у прежнего
+ * {@code text.toLowerCase().split("\\W+")}: токен — непрерывная последовательность [a-z0-9_] после
+ * приведения к нижнему регистру, любой другой символ (в том числе кириллица) — разделитель.
+ */
+public final class TextTokenizer {
+
+    @FunctionalInterface
+    public interface TokenConsumer {
+        /**
+         * @param hash хеш токена в нижнем регистре, совпадающий с {@code String.hashCode()}
+         */
+        void accept(CharSequence text, int start, int end, int hash);
+    }
+
+    private TextTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, TokenConsumer consumer) {
+        int length = text.length();
+        int start = -1;
+        int hash = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (isWordChar(c)) {
+                if (start < 0) {
+                    start = i;
+                    hash = 0;
+                }
+                hash = 31 * hash + c;
+            } else if (start >= 0) {
+                consumer.accept(text, start, i, hash);
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            consumer.accept(text, start, length, hash);
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    static boolean equalsIgnoreCase(String token, CharSequence text, int start, int end) {
+        if (token.length() != end - start) return false;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) != Character.toLowerCase(text.charAt(start + i))) return false;
+        }
+        return true;
+    }
+
+    static String lowerCaseToken(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(text.charAt(start + i));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.search.embedding;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный кэш токен → вектор с прямым отображением: при коллизии слот перезаписывается.
+ * Попадание в кэш не выделяет памяти.
+ */
+public class TokenVectorCache {
+
+    private record Entry(String token, int hash, float[] vector) {}
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TokenVectorCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Возвращает закэшированный вектор (пустой массив для неизвестного токена) или null при промахе.
+     */
+    public float[] get(CharSequence text, int start, int end, int hash) {
+        Entry entry = slots.get(spread(hash) & mask);
+        if (entry != null && entry.hash() == hash
+                && TextTokenizer.equalsIgnoreCase(entry.token(), text, start, end)) {
+            hits.increment();
+            return entry.vector();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String token, int hash, float[] vector) {
+        slots.set(spread(hash) & mask, new Entry(token, hash, vector));
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
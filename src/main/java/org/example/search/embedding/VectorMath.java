@@ -0,0 +1,35 @@
+package org.example.search.embedding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Векторные операции над float[], используемые при построении эмбеддингов и сравнении векторов.
+ */
+public interface VectorMath {
+
+    /**
+     * {@code acc[i] += src[srcOffset + i]} для i из [0, length).
+     */
+    void add(float[] acc, float[] src, int srcOffset, int length);
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Квадрат евклидова расстояния между {@code q} и вектором, записанным в {@code data} начиная с байта
+     * {@code byteOffset} в нативном порядке байт; буфер может быть off-heap.
+     */
+    float squareDistance(float[] q, ByteBuffer data, int byteOffset, int length);
+
+    /**
+     * L2-нормирование первых {@code length} компонент на месте; нулевой вектор не меняется.
+     */
+    void normalize(float[] v, int length);
+
+    /**
+     * SIMD-реализация, если JVM запущена с {@code --add-modules jdk.incubator.vector}
+     * и она не отключена через {@code -Dsearch.vector.simd=false}; иначе скалярная.
+     */
+    static VectorMath best() {
+        return VectorMathSelector.BEST;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.search.embedding;
+
+final class VectorMathSelector {
+
+    static final VectorMath BEST = select();
+
+    private VectorMathSelector() {
+    }
+
+    private static VectorMath select() {
+        if (!Boolean.parseBoolean(System.getProperty("search.vector.simd", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return new ScalarVectorMath();
+        }
+        try {
+            // класс с зависимостью от инкубаторного модуля загружается только когда модуль доступен
+            return (VectorMath) Class.forName("org.example.search.embedding.SimdVectorMath")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarVectorMath();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.search.embedding;
+
+import java.util.Arrays;
+
+/**
+ * Эмбеддинг текста как нормированная сумма векторов его токенов.
+ * Токены, которых нет в основном словаре, берутся из резервного.
+ */
+public class WordVectorEmbeddingProvider implements EmbeddingProvider {
+
+    private final WordVectors vectors;
+    private final WordVectors fallback;
+    private final VectorMath math;
+
+    public WordVectorEmbeddingProvider(WordVectors vectors) {
+        this(vectors, null);
+    }
+
+    public WordVectorEmbeddingProvider(WordVectors vectors, WordVectors fallback) {
+        this(vectors, fallback, VectorMath.best());
+    }
+
+    public WordVectorEmbeddingProvider(WordVectors vectors, WordVectors fallback, VectorMath math) {
+        if (fallback != null && fallback.dimension() != vectors.dimension()) {
+            throw new IllegalArgumentException("Fallback dimension " + fallback.dimension()
+                    + " does not match " + vectors.dimension());
+        }
+        this.vectors = vectors;
+        this.fallback = fallback;
+        this.math = math;
+    }
+
+    @Override
+    public int dimension() {
+        return vectors.dimension();
+    }
+
+    @Override
+    public void embed(CharSequence text, float[] out) {
+        Arrays.fill(out, 0, dimension(), 0f);
+
+        TextTokenizer.tokenize(text, (t, start, end, hash) -> {
+            if (!vectors.addTo(t, start, end, hash, out) && fallback != null) {
+                fallback.addTo(t, start, end, hash, out);
+            }
+        });
+
+        math.normalize(out, dimension());
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.search.embedding;
+
+public interface WordVectors {
+
+    int dimension();
+
+    /**
+     * Прибавляет вектор токена {@code text[start, end)} к {@code acc}.
+     *
+     * @return false, если токен отсутствует в словаре
+     */
+    boolean addTo(CharSequence text, int start, int end, int hash, float[] acc);
+}
@@ -0,0 +1,22 @@
+package org.example.search.engine;
+
+import org.example.search.SearchRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Точка во времени индекса: все запросы к одному снимку видят одни и те же документы.
+ */
+public interface EngineSnapshot extends Closeable {
+
+    /**
+     * Поколение данных для кэша результатов; отрицательное значение — результаты не кэшируются.
+     */
+    long version();
+
+    /**
+     * Одна страница из не более чем limit попаданий, начиная с курсора запроса.
+     */
+    SearchHits search(SearchRequest request, int limit) throws IOException;
+}
@@ -0,0 +1,151 @@
+package org.example.search.engine;
+
+import org.example.search.IngestStats;
+import org.example.search.model.IndexedDocument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Инвертированный индекс в памяти процесса без Lucene: BM25 по телу документа и отбор top-k в куче.
+ * Каждый документ становится сегментом, соседние сегменты равного размера сливаются (как двоичный
+ * счётчик), и новый набор сегментов публикуется через volatile-ссылку. Читатели работают
+ * со своим набором без блокировок; писатели сериализуются между собой.
+ */
+public class InMemorySearchEngine implements SearchEngine {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private record State(InvertedSegment[] segments, int[] docBases, int docCount, long totalLength,
+                         long generation) {}
+
+    /**
+     * Накопители оценок одного потока: выделяются под самый крупный сегмент один раз, а не на каждый запрос,
+     * и после каждого сегмента обнуляются только в задетых документах.
+     */
+    private static final class Scratch {
+        float[] acc = new float[0];
+        int[] touched = new int[0];
+
+        void ensureCapacity(int docs) {
+            if (acc.length < docs) {
+                acc = new float[docs];
+                touched = new int[docs];
+            }
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Object writeLock = new Object();
+    private volatile State state = new State(new InvertedSegment[0], new int[0], 0, 0, 0);
+
+    @Override
+    public void addDocument(IndexedDocument doc) {
+        // разбор текста — вне блокировки писателей
+        InvertedSegment segment = InvertedSegment.of(doc);
+        synchronized (writeLock) {
+            State current = state;
+            InvertedSegment[] segments = Arrays.copyOf(current.segments(), current.segments().length + 1);
+            segments[segments.length - 1] = segment;
+            int n = segments.length;
+            while (n >= 2 && segments[n - 2].docCount() <= segments[n - 1].docCount()) {
+                segments[n - 2] = InvertedSegment.merge(segments[n - 2], segments[n - 1]);
+                n--;
+            }
+            segments = Arrays.copyOf(segments, n);
+
+            int[] docBases = new int[n];
+            int docCount = 0;
+            for (int i = 0; i < n; i++) {
+                docBases[i] = docCount;
+                docCount += segments[i].docCount();
+            }
+            state = new State(segments, docBases, docCount, current.totalLength() + segment.totalLength(),
+                    current.generation() + 1);
+        }
+    }
+
+    @Override
+    public List<SearchResultItem> search(String query, int limit) {
+        return search(state, query, limit);
+    }
+
+    /**
+     * Снимок — зафиксированный набор сегментов; его поколение годится как версия для кэша результатов.
+     */
+    @Override
+    public EngineSnapshot snapshot() {
+        State snapshot = state;
+        return new SimpleEngineSnapshot(getClass().getSimpleName(), snapshot.generation(),
+                (query, limit) -> search(snapshot, query, limit));
+    }
+
+    @Override
+    public IngestStats ingestStats() {
+        return IngestStats.newBuilder().setIndexedDocuments(state.docCount()).build();
+    }
+
+    private static List<SearchResultItem> search(State state, String query, int limit) {
+        int docCount = state.docCount();
+        if (limit <= 0 || docCount == 0) return List.of();
+
+        Set<String> unique = new LinkedHashSet<>();
+        InvertedSegment.terms(query, unique::add);
+        String[] terms = unique.toArray(new String[0]);
+
+        // статистика BM25 — по всем сегментам снимка, чтобы оценки не зависели от разбиения на сегменты
+        InvertedSegment[] segments = state.segments();
+        float[] idf = new float[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            long docFreq = 0;
+            for (InvertedSegment segment : segments) {
+                int ord = segment.termOrd(terms[t]);
+                if (ord >= 0) docFreq += segment.docFreq(ord);
+            }
+            idf[t] = (float) Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+        }
+        float avgLength = (float) state.totalLength() / docCount;
+
+        TopKHeap top = new TopKHeap(Math.min(limit, docCount));
+        Scratch scratch = SCRATCH.get();
+        for (int s = 0; s < segments.length; s++) {
+            InvertedSegment segment = segments[s];
+            scratch.ensureCapacity(segment.docCount());
+            float[] acc = scratch.acc;
+            int[] touched = scratch.touched;
+            int touchedCount = 0;
+            for (int t = 0; t < terms.length; t++) {
+                int ord = segment.termOrd(terms[t]);
+                if (ord >= 0) {
+                    touchedCount = segment.score(ord, idf[t], K1, B, avgLength, acc, touched, touchedCount);
+                }
+            }
+            int docBase = state.docBases()[s];
+            for (int i = 0; i < touchedCount; i++) {
+                top.offer(docBase + touched[i], acc[touched[i]]);
+                acc[touched[i]] = 0;
+            }
+        }
+
+        int[] docs = new int[top.size()];
+        float[] scores = new float[top.size()];
+        int n = top.drainSorted(docs, scores);
+        List<SearchResultItem> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int s = segmentOf(state.docBases(), docs[i]);
+            int doc = docs[i] - state.docBases()[s];
+            results.add(new SearchResultItem(segments[s].id(doc), segments[s].title(doc), scores[i]));
+        }
+        return results;
+    }
+
+    private static int segmentOf(int[] docBases, int doc) {
+        int s = Arrays.binarySearch(docBases, doc);
+        return s >= 0 ? s : -s - 2;
+    }
+}
@@ -0,0 +1,263 @@
+package org.example.search.engine;
+
+import org.example.search.model.IndexedDocument;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемый сегмент инвертированного индекса. Словарь — отсортированный массив термов с двоичным
+ * поиском; списки вхождений всех термов лежат в одном byte[] как пары varint (дельта номера документа,
+ * частота). После публикации сегмент только читается, поэтому читателям не нужны блокировки.
+ */
+public final class InvertedSegment {
+
+    private final String[] ids;
+    private final String[] titles;
+    private final int[] docLengths;
+    private final long totalLength;
+
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int[] lastDocs;
+    // списки терма i занимают postings[postingStarts[i], postingStarts[i + 1])
+    private final int[] postingStarts;
+    private final byte[] postings;
+
+    private InvertedSegment(String[] ids, String[] titles, int[] docLengths, long totalLength, String[] terms,
+                            int[] docFreqs, int[] lastDocs, int[] postingStarts, byte[] postings) {
+        this.ids = ids;
+        this.titles = titles;
+        this.docLengths = docLengths;
+        this.totalLength = totalLength;
+        this.terms = terms;
+        this.docFreqs = docFreqs;
+        this.lastDocs = lastDocs;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+    }
+
+    /**
+     * Сегмент из одного документа; индексируется только тело, как в {@link LuceneSearchEngine}.
+     */
+    public static InvertedSegment of(IndexedDocument doc) {
+        Map<String, int[]> freqs = new HashMap<>();
+        int[] length = new int[1];
+        terms(doc.body(), term -> {
+            freqs.computeIfAbsent(term, t -> new int[1])[0]++;
+            length[0]++;
+        });
+
+        String[] terms = freqs.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] docFreqs = new int[terms.length];
+        int[] lastDocs = new int[terms.length];
+        int[] postingStarts = new int[terms.length + 1];
+        ByteSink out = new ByteSink(terms.length * 2);
+        for (int i = 0; i < terms.length; i++) {
+            postingStarts[i] = out.length;
+            out.writeVInt(0);
+            out.writeVInt(freqs.get(terms[i])[0]);
+            docFreqs[i] = 1;
+        }
+        postingStarts[terms.length] = out.length;
+
+        return new InvertedSegment(new String[]{doc.id()}, new String[]{doc.title()}, length, length[0],
+                terms, docFreqs, lastDocs, postingStarts, out.toArray());
+    }
+
+    /**
+     * Сливает два сегмента; документы b следуют за документами a. Списки вхождений копируются
+     * байтами без декодирования: пересчитывается только первая дельта из b.
+     */
+    public static InvertedSegment merge(InvertedSegment a, InvertedSegment b) {
+        int docBase = a.docCount();
+        String[] terms = new String[a.terms.length + b.terms.length];
+        int[] docFreqs = new int[terms.length];
+        int[] lastDocs = new int[terms.length];
+        int[] postingStarts = new int[terms.length + 1];
+        ByteSink out = new ByteSink(a.postings.length + b.postings.length + 16);
+
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.terms.length || j < b.terms.length) {
+            int cmp = i == a.terms.length ? 1 : j == b.terms.length ? -1 : a.terms[i].compareTo(b.terms[j]);
+            postingStarts[n] = out.length;
+            if (cmp <= 0) {
+                terms[n] = a.terms[i];
+                out.write(a.postings, a.postingStarts[i], a.postingStarts[i + 1]);
+                docFreqs[n] = a.docFreqs[i];
+                lastDocs[n] = a.lastDocs[i];
+            }
+            if (cmp >= 0) {
+                terms[n] = b.terms[j];
+                int previous = cmp == 0 ? a.lastDocs[i] : -1;
+                int pos = b.postingStarts[j];
+                // первая дельта в b отсчитывается от 0, в слитом сегменте — от последнего документа a
+                int first = readVInt(b.postings, pos);
+                pos += vIntLength(first);
+                out.writeVInt(cmp == 0 ? docBase + first - previous : docBase + first);
+                out.write(b.postings, pos, b.postingStarts[j + 1]);
+                docFreqs[n] += b.docFreqs[j];
+                lastDocs[n] = docBase + b.lastDocs[j];
+            }
+            if (cmp <= 0) i++;
+            if (cmp >= 0) j++;
+            n++;
+        }
+        postingStarts[n] = out.length;
+
+        return new InvertedSegment(
+                concat(a.ids, b.ids), concat(a.titles, b.titles), concat(a.docLengths, b.docLengths),
+                a.totalLength + b.totalLength, Arrays.copyOf(terms, n), Arrays.copyOf(docFreqs, n),
+                Arrays.copyOf(lastDocs, n), Arrays.copyOf(postingStarts, n + 1), out.toArray());
+    }
+
+    public int docCount() {
+        return ids.length;
+    }
+
+    public long totalLength() {
+        return totalLength;
+    }
+
+    public String id(int doc) {
+        return ids[doc];
+    }
+
+    public String title(int doc) {
+        return titles[doc];
+    }
+
+    /**
+     * Порядковый номер терма в словаре или отрицательное число, если терма нет.
+     */
+    public int termOrd(String term) {
+        return Arrays.binarySearch(terms, term);
+    }
+
+    public int docFreq(int ord) {
+        return docFreqs[ord];
+    }
+
+    /**
+     * Добавляет BM25-вклад терма к оценкам документов; номера впервые задетых документов
+     * дописываются в touched, возвращается их новое число.
+     */
+    int score(int ord, float idf, float k1, float b, float avgLength, float[] acc, int[] touched, int touchedCount) {
+        int pos = postingStarts[ord];
+        int end = postingStarts[ord + 1];
+        int doc = 0;
+        while (pos < end) {
+            int delta = readVInt(postings, pos);
+            pos += vIntLength(delta);
+            int freq = readVInt(postings, pos);
+            pos += vIntLength(freq);
+            doc += delta;
+
+            float norm = k1 * (1 - b + b * docLengths[doc] / avgLength);
+            if (acc[doc] == 0) {
+                touched[touchedCount++] = doc;
+            }
+            acc[doc] += idf * freq * (k1 + 1) / (freq + norm);
+        }
+        return touchedCount;
+    }
+
+    /**
+     * Термы текста в нижнем регистре (Locale.ROOT): непрерывные последовательности букв и цифр любого
+     * алфавита, '_' и диакритики внутри слова — для обычного текста те же границы, что у StandardAnalyzer.
+     * Токенизатор эмбеддингов ({@code TextTokenizer}) здесь не подходит: он оставляет только ASCII.
+     */
+    static void terms(CharSequence text, Consumer<String> consumer) {
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i < length; ) {
+            int cp = Character.codePointAt(text, i);
+            boolean inWord = Character.isLetterOrDigit(cp) || cp == '_' || (start >= 0 && isMark(cp));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                consumer.accept(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+            i += Character.charCount(cp);
+        }
+        if (start >= 0) {
+            consumer.accept(text.subSequence(start, length).toString().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static int readVInt(byte[] bytes, int pos) {
+        int b = bytes[pos++];
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = bytes[pos++];
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    private static int vIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        String[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int length;
+
+        ByteSink(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void writeVInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void write(byte[] src, int from, int to) {
+            ensure(to - from);
+            System.arraycopy(src, from, bytes, length, to - from);
+            length += to - from;
+        }
+
+        byte[] toArray() {
+            return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -13,19 +13,33 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.MMapDirectory;
 import org.example.search.model.IndexedDocument;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 public class LuceneSearchEngine implements SearchEngine {
 
     private final StandardAnalyzer analyzer = new StandardAnalyzer();
-    private final Directory directory = new ByteBuffersDirectory();
+    private final Directory directory;
     private final IndexWriter writer;
 
     public LuceneSearchEngine() throws Exception {
-        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        this(new ByteBuffersDirectory());
+    }
+
+    public LuceneSearchEngine(Path indexPath) throws Exception {
+        this(new MMapDirectory(Files.createDirectories(indexPath)));
+    }
+
+    private LuceneSearchEngine(Directory directory) throws Exception {
+        this.directory = directory;
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
         this.writer = new IndexWriter(directory, config);
     }
 
@@ -62,4 +76,10 @@ public class LuceneSearchEngine implements SearchEngine {
             return results;
         }
     }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+        directory.close();
+    }
 }
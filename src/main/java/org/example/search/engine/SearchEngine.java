@@ -1,15 +1,66 @@
 package org.example.search.engine;
 
 
+import org.example.search.CacheStats;
+import org.example.search.IngestStats;
 import org.example.search.model.IndexedDocument;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 
-public interface SearchEngine {
+/**
+ * Индекс, за которым работает gRPC-сервис. Простым движкам достаточно addDocument и search:
+ * остальное по умолчанию выражено через них, и неподдерживаемые операции бросают
+ * {@link UnsupportedOperationException}.
+ */
+public interface SearchEngine extends Closeable {
 
     void addDocument(IndexedDocument doc) throws Exception;
 
     List<SearchResultItem> search(String query, int limit) throws Exception;
 
+    /**
+     * Ставит документ в индексацию, ожидая места в очереди не дольше timeoutMs;
+     * false — очередь так и не освободилась. Движки без очереди индексируют сразу.
+     */
+    default boolean add(IndexedDocument doc, long timeoutMs) throws Exception {
+        addDocument(doc);
+        return true;
+    }
+
+    /**
+     * Заменяет все документы с тем же id.
+     */
+    default boolean upsert(IndexedDocument doc, long timeoutMs) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support upsert");
+    }
+
+    default boolean delete(String id, long timeoutMs) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support delete");
+    }
+
+    /**
+     * Снимок индекса, на котором выполняются один или несколько запросов; закрывает вызывающий.
+     */
+    default EngineSnapshot snapshot() throws IOException {
+        return new SimpleEngineSnapshot(this);
+    }
+
+    default IngestStats ingestStats() {
+        return IngestStats.getDefaultInstance();
+    }
+
+    /**
+     * Внутренние кэши движка (разобранные запросы, эмбеддинги и т.п.).
+     */
+    default List<CacheStats> cacheStats() {
+        return List.of();
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
     record SearchResultItem(String id, String title, float score) {}
 }
@@ -0,0 +1,27 @@
+package org.example.search.engine;
+
+import org.example.search.SearchCursor;
+import org.example.search.SearchResult;
+
+import java.io.IOException;
+
+/**
+ * Страница попаданий. Результаты читаются по одному и только в пределах жизни снимка,
+ * поэтому их можно отправлять потоком, не материализуя всю страницу.
+ */
+public interface SearchHits {
+
+    int size();
+
+    float score(int i);
+
+    /**
+     * Результат с учётом проекции полей и подсветки исходного запроса.
+     */
+    SearchResult result(int i) throws IOException;
+
+    /**
+     * Курсор следующей страницы или null, если страница неполная.
+     */
+    SearchCursor nextCursor();
+}
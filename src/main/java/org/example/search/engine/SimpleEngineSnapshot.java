@@ -0,0 +1,97 @@
+package org.example.search.engine;
+
+import org.example.search.ResultField;
+import org.example.search.SearchCursor;
+import org.example.search.SearchMethod;
+import org.example.search.SearchRequest;
+import org.example.search.SearchResult;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Снимок для движков, у которых есть только {@link SearchEngine#search(String, int)}: поддерживается
+ * лишь TEXT без фильтров, следующая страница пересчитывает offset + limit лучших, сниппетов нет.
+ * Без версии (по умолчанию) результаты такого снимка не кэшируются.
+ */
+public class SimpleEngineSnapshot implements EngineSnapshot {
+
+    @FunctionalInterface
+    public interface TextSearch {
+        List<SearchEngine.SearchResultItem> search(String query, int limit) throws Exception;
+    }
+
+    private final String engineName;
+    private final long version;
+    private final TextSearch search;
+
+    public SimpleEngineSnapshot(SearchEngine engine) {
+        this(engine.getClass().getSimpleName(), -1, engine::search);
+    }
+
+    /**
+     * @param search поиск по зафиксированному состоянию движка с данной версией
+     */
+    public SimpleEngineSnapshot(String engineName, long version, TextSearch search) {
+        this.engineName = engineName;
+        this.version = version;
+        this.search = search;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public SearchHits search(SearchRequest request, int limit) throws IOException {
+        if (request.getMethod() != SearchMethod.TEXT) {
+            throw new UnsupportedOperationException(
+                    engineName + " does not support " + request.getMethod() + " search");
+        }
+        if (request.hasFilter()) {
+            throw new UnsupportedOperationException(engineName + " does not support search filters");
+        }
+        int offset = request.hasSearchAfter() ? request.getSearchAfter().getOffset() : 0;
+        List<SearchEngine.SearchResultItem> items;
+        try {
+            items = search.search(request.getQuery(), offset + limit);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        List<SearchEngine.SearchResultItem> page = items.subList(Math.min(offset, items.size()), items.size());
+        boolean needTitle = request.getFieldsCount() == 0 || request.getFieldsList().contains(ResultField.TITLE);
+
+        return new SearchHits() {
+            @Override
+            public int size() {
+                return page.size();
+            }
+
+            @Override
+            public float score(int i) {
+                return page.get(i).score();
+            }
+
+            @Override
+            public SearchResult result(int i) {
+                SearchResult.Builder result = SearchResult.newBuilder().setId(page.get(i).id());
+                if (needTitle && page.get(i).title() != null) {
+                    result.setTitle(page.get(i).title());
+                }
+                return result.build();
+            }
+
+            @Override
+            public SearchCursor nextCursor() {
+                return page.size() == limit ? SearchCursor.newBuilder().setOffset(offset + limit).build() : null;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+}
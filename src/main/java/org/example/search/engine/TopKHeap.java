@@ -0,0 +1,104 @@
+package org.example.search.engine;
+
+/**
+ * Минимальная куча из k лучших (оценка, документ) на примитивных массивах. При равных оценках
+ * выше идёт меньший номер документа, как в Lucene.
+ */
+public final class TopKHeap {
+
+    private final int k;
+    private final float[] scores;
+    private final int[] docs;
+    private int size;
+
+    public TopKHeap(int k) {
+        this.k = k;
+        this.scores = new float[k];
+        this.docs = new int[k];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Худшая оценка в заполненной куче; документы не выше неё не попадут в top-k.
+     */
+    public float minCompetitiveScore() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(int doc, float score) {
+        if (size < k) {
+            scores[size] = score;
+            docs[size] = doc;
+            siftUp(size++);
+        } else if (k > 0 && better(score, doc, scores[0], docs[0])) {
+            scores[0] = score;
+            docs[0] = doc;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Переносит содержимое другой кучи (например, кучи другого потока) в эту.
+     */
+    public void addAll(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.docs[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Опустошает кучу, записывая документы и оценки от лучшего к худшему; возвращает их число.
+     */
+    public int drainSorted(int[] docsOut, float[] scoresOut) {
+        int n = size;
+        for (int i = n - 1; i >= 0; i--) {
+            docsOut[i] = docs[0];
+            scoresOut[i] = scores[0];
+            size--;
+            scores[0] = scores[size];
+            docs[0] = docs[size];
+            siftDown(0);
+        }
+        return n;
+    }
+
+    private static boolean better(float score, int doc, float otherScore, int otherDoc) {
+        return score > otherScore || (score == otherScore && doc < otherDoc);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(scores[parent], docs[parent], scores[i], docs[i])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(scores[left], docs[left], scores[right], docs[right])) {
+                worst = right;
+            }
+            if (!better(scores[i], docs[i], scores[worst], docs[worst])) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+        int d = docs[a];
+        docs[a] = docs[b];
+        docs[b] = d;
+    }
+}
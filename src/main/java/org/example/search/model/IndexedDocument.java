@@ -1,15 +1,26 @@
 package org.example.search.model;
 
 
+import java.util.List;
+import java.util.Map;
+
 public class IndexedDocument {
     private final String id;
     private final String title;
     private final String body;
+    private final List<String> tags;
+    private final Map<String, Double> numbers;
 
     public IndexedDocument(String id, String title, String body) {
+        this(id, title, body, List.of(), Map.of());
+    }
+
+    public IndexedDocument(String id, String title, String body, List<String> tags, Map<String, Double> numbers) {
         this.id = id;
         this.title = title;
         this.body = body;
+        this.tags = tags;
+        this.numbers = numbers;
     }
 
     public String id() {
@@ -23,4 +34,18 @@ public class IndexedDocument {
     public String body() {
         return body;
     }
+
+    /**
+     * Ключевые слова для фильтрации.
+     */
+    public List<String> tags() {
+        return tags;
+    }
+
+    /**
+     * Числовые атрибуты для фильтрации по диапазону.
+     */
+    public Map<String, Double> numbers() {
+        return numbers;
+    }
 }
@@ -0,0 +1,236 @@
+package org.example.search.service;
+
+import org.example.search.embedding.VectorMath;
+import org.example.search.engine.TopKHeap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Точный kNN перебором: все эмбеддинги лежат подряд в off-heap матрице (строка — документ).
+ * Матрица сканируется кусками по chunkRows строк в пуле поиска, у каждого куска своя top-k куча,
+ * кучи сливаются в конце. Оценка — 1 / (1 + d²), как у EUCLIDEAN в Lucene, поэтому она сравнима с VECTOR.
+ * <p>
+ * Строки только дописываются; замена и удаление помечают старые строки удалёнными. Когда удалённых строк
+ * становится больше deletesPctAllowed процентов, живые строки переписываются в новую матрицу — так же,
+ * как слияния Lucene вычищают soft deletes. Читатели берут опубликованную {@link Matrix} без блокировок
+ * и дочитывают прежнюю матрицу, если её заменили во время перебора; писатели сериализуются между собой.
+ */
+public class FlatVectorIndex {
+
+    private static final int NO_ROW = -1;
+    private static final int INITIAL_ROWS = 1_024;
+    private static final double DEFAULT_DELETES_PCT_ALLOWED = 20;
+
+    public record Hit(String id, float score) {}
+
+    /**
+     * Опубликованное состояние: строки [0, rows) заполнены и больше не меняются, кроме пометок удаления.
+     */
+    private record Matrix(ByteBuffer data, String[] ids, AtomicLongArray deleted, int rows) {
+        int capacity() {
+            return ids.length;
+        }
+
+        boolean isDeleted(int row) {
+            return (deleted.get(row >>> 6) & (1L << row)) != 0;
+        }
+    }
+
+    private final int dimension;
+    private final int rowBytes;
+    private final VectorMath math;
+    private final Subtasks subtasks;
+    private final int chunkRows;
+    private final double deletesPctAllowed;
+
+    private final Object writeLock = new Object();
+    // дальше — только под writeLock: последняя строка id и цепочка предыдущих строк того же id (ADD не проверяет уникальность)
+    private final Map<String, Integer> lastRowById = new HashMap<>();
+    private int[] previousRow = new int[INITIAL_ROWS];
+    private int deletedRows;
+    private volatile Matrix matrix;
+
+    public FlatVectorIndex(int dimension, VectorMath math, Subtasks subtasks, int chunkRows) {
+        this(dimension, math, subtasks, chunkRows, DEFAULT_DELETES_PCT_ALLOWED);
+    }
+
+    /**
+     * @param deletesPctAllowed доля удалённых строк в процентах, после которой матрица уплотняется
+     */
+    public FlatVectorIndex(int dimension, VectorMath math, Subtasks subtasks, int chunkRows,
+                           double deletesPctAllowed) {
+        this.dimension = dimension;
+        this.rowBytes = dimension * Float.BYTES;
+        this.math = math;
+        this.subtasks = subtasks;
+        this.chunkRows = chunkRows;
+        this.deletesPctAllowed = deletesPctAllowed;
+        this.matrix = allocate(INITIAL_ROWS, null);
+    }
+
+    /**
+     * Число строк матрицы, включая ещё не вычищенные удалённые.
+     */
+    public int size() {
+        return matrix.rows();
+    }
+
+    public int deletedRows() {
+        synchronized (writeLock) {
+            return deletedRows;
+        }
+    }
+
+    public void add(String id, float[] vector) {
+        synchronized (writeLock) {
+            append(id, vector);
+        }
+    }
+
+    public void upsert(String id, float[] vector) {
+        synchronized (writeLock) {
+            markDeleted(id);
+            append(id, vector);
+            maybeCompact();
+        }
+    }
+
+    public void delete(String id) {
+        synchronized (writeLock) {
+            markDeleted(id);
+            maybeCompact();
+        }
+    }
+
+    /**
+     * k ближайших к query живых строк, от лучшей к худшей; первый кусок сканирует вызывающий поток.
+     */
+    public List<Hit> search(float[] query, int k) throws IOException {
+        Matrix m = matrix;
+        if (m.rows() == 0 || k <= 0) return List.of();
+
+        List<FutureTask<TopKHeap>> tasks = new ArrayList<>();
+        for (int from = chunkRows; from < m.rows(); from += chunkRows) {
+            int start = from;
+            tasks.add(subtasks.fork(() -> scan(m, query, start, Math.min(start + chunkRows, m.rows()), k)));
+        }
+        TopKHeap top = scan(m, query, 0, Math.min(chunkRows, m.rows()), k);
+        for (FutureTask<TopKHeap> task : tasks) {
+            top.addAll(Subtasks.join(task));
+        }
+
+        int[] rows = new int[top.size()];
+        float[] scores = new float[top.size()];
+        int n = top.drainSorted(rows, scores);
+        List<Hit> hits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            hits.add(new Hit(m.ids()[rows[i]], scores[i]));
+        }
+        return hits;
+    }
+
+    private TopKHeap scan(Matrix m, float[] query, int from, int to, int k) {
+        TopKHeap heap = new TopKHeap(k);
+        ByteBuffer data = m.data();
+        for (int row = from; row < to; row++) {
+            if (m.isDeleted(row)) continue;
+            float distance = math.squareDistance(query, data, row * rowBytes, dimension);
+            heap.offer(row, 1 / (1 + distance));
+        }
+        return heap;
+    }
+
+    private void append(String id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " components, got " + vector.length);
+        }
+        Matrix m = matrix;
+        if (m.rows() == m.capacity()) {
+            m = allocate(m.capacity() * 2, m);
+            previousRow = Arrays.copyOf(previousRow, m.capacity());
+        }
+        int row = m.rows();
+        int offset = row * rowBytes;
+        for (int i = 0; i < dimension; i++) {
+            m.data().putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+        m.ids()[row] = id;
+        Integer previous = lastRowById.put(id, row);
+        previousRow[row] = previous == null ? NO_ROW : previous;
+        // публикация новой строки читателям
+        matrix = new Matrix(m.data(), m.ids(), m.deleted(), row + 1);
+    }
+
+    private void markDeleted(String id) {
+        Integer last = lastRowById.remove(id);
+        Matrix m = matrix;
+        for (int row = last == null ? NO_ROW : last; row != NO_ROW; row = previousRow[row]) {
+            int word = row >>> 6;
+            long bit = 1L << row;
+            m.deleted().getAndUpdate(word, w -> w | bit);
+            deletedRows++;
+        }
+    }
+
+    /**
+     * Небольшие матрицы не уплотняются: иначе частые upsert одного id перевыделяли бы буфер на каждой операции.
+     */
+    private void maybeCompact() {
+        Matrix m = matrix;
+        if (deletedRows >= INITIAL_ROWS && deletedRows * 100.0 > m.rows() * deletesPctAllowed) {
+            compact(m);
+        }
+    }
+
+    /**
+     * Переписывает живые строки подряд в новую матрицу и заново строит цепочки строк по id.
+     */
+    private void compact(Matrix old) {
+        int live = old.rows() - deletedRows;
+        Matrix m = allocate(Math.max(INITIAL_ROWS, Math.min(old.capacity(), live * 2)), null);
+        int[] previous = new int[m.capacity()];
+        lastRowById.clear();
+        int row = 0;
+        for (int r = 0; r < old.rows(); r++) {
+            if (old.isDeleted(r)) continue;
+            m.data().put(row * rowBytes, old.data(), r * rowBytes, rowBytes);
+            String id = old.ids()[r];
+            m.ids()[row] = id;
+            Integer last = lastRowById.put(id, row);
+            previous[row] = last == null ? NO_ROW : last;
+            row++;
+        }
+        previousRow = previous;
+        deletedRows = 0;
+        matrix = new Matrix(m.data(), m.ids(), m.deleted(), row);
+    }
+
+    private Matrix allocate(int capacity, Matrix old) {
+        if ((long) capacity * rowBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Flat vector index is limited to "
+                    + Integer.MAX_VALUE / rowBytes + " vectors of dimension " + dimension);
+        }
+        ByteBuffer data = ByteBuffer.allocateDirect(capacity * rowBytes).order(ByteOrder.nativeOrder());
+        String[] ids = new String[capacity];
+        AtomicLongArray deleted = new AtomicLongArray((capacity + 63) >>> 6);
+        int rows = 0;
+        if (old != null) {
+            rows = old.rows();
+            data.put(old.data().duplicate().clear().limit(rows * rowBytes));
+            System.arraycopy(old.ids(), 0, ids, 0, rows);
+            for (int i = 0; i < old.deleted().length(); i++) {
+                deleted.set(i, old.deleted().get(i));
+            }
+        }
+        return new Matrix(data, ids, deleted, rows);
+    }
+}
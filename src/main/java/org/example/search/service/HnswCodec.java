@@ -0,0 +1,23 @@
+package org.example.search.service;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene95.Lucene95Codec;
+import org.apache.lucene.codecs.lucene95.Lucene95HnswVectorsFormat;
+
+/**
+ * Кодек по умолчанию с заданными параметрами построения HNSW-графа.
+ * maxConn и beamWidth влияют только на запись, поэтому индекс читается стандартным Lucene95Codec.
+ */
+public final class HnswCodec extends Lucene95Codec {
+
+    private final KnnVectorsFormat vectorsFormat;
+
+    public HnswCodec(int maxConn, int beamWidth) {
+        this.vectorsFormat = new Lucene95HnswVectorsFormat(maxConn, beamWidth);
+    }
+
+    @Override
+    public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+        return vectorsFormat;
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.search.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Независимая часть индекса: свой IndexWriter, SearcherManager, поток reopen и поток индексации.
+ * Шарды не делят блокировок, поэтому индексация и слияния в одном не задерживают остальные.
+ */
+public class IndexShard implements Closeable {
+
+    /** Поле doc values, которым помечаются заменённые и удалённые документы. */
+    public static final String SOFT_DELETES_FIELD = "__soft_deletes";
+    private static final Logger log = Logger.getLogger(IndexShard.class.getName());
+    private static final double MIN_STALE_SEC = 0.01;
+
+    private final int index;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final IngestPipeline ingest;
+
+    public IndexShard(int index, Path path, SearchServiceConfig config, Analyzer analyzer,
+                      SearcherFactory searcherFactory) throws IOException {
+        this(index, path, config, analyzer, searcherFactory, operation -> {});
+    }
+
+    /**
+     * @param path    каталог шарда; {@code null} — индекс в памяти
+     * @param applied вызывается потоком индексации шарда после применения каждой операции
+     */
+    public IndexShard(int index, Path path, SearchServiceConfig config, Analyzer analyzer,
+                      SearcherFactory searcherFactory, Consumer<IngestOperation> applied) throws IOException {
+        this.index = index;
+        this.directory = openDirectory(path);
+        IndexWriterConfig writerConfig = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(config.ramBufferSizeMb() / config.shards())
+                .setSoftDeletesField(SOFT_DELETES_FIELD)
+                .setCodec(new HnswCodec(config.hnswMaxConn(), config.hnswBeamWidth()))
+                .setMergePolicy(SearchExecutors.mergePolicy(config));
+        // открывается последний успешный commit; всё, что не было зафиксировано до сбоя, отбрасывается
+        this.writer = new IndexWriter(directory, writerConfig);
+        this.searcherManager = new SearcherManager(writer, searcherFactory);
+        if (path != null) {
+            log.fine(() -> "Opened index at " + path + " with " + writer.getDocStats().numDocs + " documents");
+        }
+
+        // обновление reader'а в фоне: запросы никогда не платят за reopen
+        double maxStaleSec = config.refreshIntervalMs() / 1000.0;
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                maxStaleSec, Math.min(maxStaleSec, MIN_STALE_SEC));
+        reopenThread.setName(threadName("searcher-reopen", config));
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+
+        ingest = new IngestPipeline(writer, config, threadName("ingest-worker", config), applied);
+    }
+
+    private String threadName(String base, SearchServiceConfig config) {
+        return config.shards() == 1 ? base : base + "-" + index;
+    }
+
+    private static Directory openDirectory(Path path) throws IOException {
+        if (path == null) {
+            return new ByteBuffersDirectory();
+        }
+        Files.createDirectories(path);
+        return new MMapDirectory(path);
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public IngestPipeline ingest() {
+        return ingest;
+    }
+
+    public IndexSearcher acquire() throws IOException {
+        return searcherManager.acquire();
+    }
+
+    public void release(IndexSearcher searcher) throws IOException {
+        searcherManager.release(searcher);
+    }
+
+    @Override
+    public void close() throws IOException {
+        ingest.close();
+        reopenThread.close();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.search.service;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Searcher'ы всех шардов, захваченные на время запроса (или пакета запросов).
+ * Номер searcher'а совпадает с номером шарда и с {@code ScoreDoc.shardIndex} после {@code TopDocs.merge}.
+ */
+public class IndexSnapshot implements Closeable {
+
+    private final List<IndexShard> shards;
+    private final IndexSearcher[] searchers;
+
+    public IndexSnapshot(List<IndexShard> shards) throws IOException {
+        this.shards = shards;
+        this.searchers = new IndexSearcher[shards.size()];
+        try {
+            for (int i = 0; i < searchers.length; i++) {
+                searchers[i] = shards.get(i).acquire();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return searchers.length;
+    }
+
+    public IndexSearcher searcher(int shard) {
+        return searchers[shard];
+    }
+
+    /**
+     * Сумма версий reader'ов шардов. Версия каждого шарда только растёт, поэтому сумма меняется
+     * при любом изменении любого шарда и годится как поколение для кэша результатов.
+     */
+    public long version() {
+        long version = 0;
+        for (IndexSearcher searcher : searchers) {
+            version += ((DirectoryReader) searcher.getIndexReader()).getVersion();
+        }
+        return version;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < searchers.length; i++) {
+            if (searchers[i] == null) continue;
+            try {
+                shards.get(i).release(searchers[i]);
+            } catch (IOException e) {
+                failure = e;
+            }
+            searchers[i] = null;
+        }
+        if (failure != null) throw failure;
+    }
+}
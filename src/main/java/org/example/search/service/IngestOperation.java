@@ -0,0 +1,37 @@
+package org.example.search.service;
+
+import org.apache.lucene.document.Document;
+
+/**
+ * Элемент очереди индексации: операции над одним id применяются в порядке поступления,
+ * так как id всегда направляется в один и тот же шард с одним потоком записи.
+ *
+ * @param vector эмбеддинг документа для плоской матрицы FLAT_VECTOR или null
+ */
+public record IngestOperation(Type type, String id, Document document, float[] vector) {
+
+    public enum Type {
+        /** Дописать документ без проверки id: самый дешёвый путь для первичной загрузки. */
+        ADD,
+        /** Заменить все документы с этим id (softUpdateDocument). */
+        UPSERT,
+        /** Пометить документы с этим id удалёнными через soft deletes. */
+        DELETE
+    }
+
+    public static IngestOperation add(String id, Document document) {
+        return add(id, document, null);
+    }
+
+    public static IngestOperation add(String id, Document document, float[] vector) {
+        return new IngestOperation(Type.ADD, id, document, vector);
+    }
+
+    public static IngestOperation upsert(String id, Document document, float[] vector) {
+        return new IngestOperation(Type.UPSERT, id, document, vector);
+    }
+
+    public static IngestOperation delete(String id) {
+        return new IngestOperation(Type.DELETE, id, null, null);
+    }
+}
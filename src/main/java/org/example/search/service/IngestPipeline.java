@@ -0,0 +1,208 @@
+package org.example.search.service;
+
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class IngestPipeline implements Closeable {
+
+    private static final Logger log = Logger.getLogger(IngestPipeline.class.getName());
+    private static final long IDLE_POLL_MS = 100;
+
+    private final IndexWriter writer;
+    private final SearchServiceConfig config;
+
+    private final IngestQueue<IngestOperation> queue;
+    private final Consumer<IngestOperation> applied;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public IngestPipeline(IndexWriter writer, SearchServiceConfig config) {
+        this(writer, config, "ingest-worker");
+    }
+
+    public IngestPipeline(IndexWriter writer, SearchServiceConfig config, String threadName) {
+        this(writer, config, threadName, operation -> {});
+    }
+
+    /**
+     * @param applied вызывается потоком индексации после успешного применения каждой операции,
+     *                в том же порядке, в каком операции применяются к IndexWriter
+     */
+    public IngestPipeline(IndexWriter writer, SearchServiceConfig config, String threadName,
+                          Consumer<IngestOperation> applied) {
+        this.writer = writer;
+        this.config = config;
+        this.applied = applied;
+        this.queue = new IngestQueue<>(config.maxQueuedDocs(), config.maxQueuedBytes());
+
+        worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @throws IllegalStateException если IndexWriter уже закрыт неустранимой ошибкой: такая запись была бы потеряна
+     */
+    public boolean submit(IngestOperation operation, long bytes, long timeoutMs) throws InterruptedException {
+        Throwable tragic = writer.getTragicException();
+        if (tragic != null) {
+            throw new IllegalStateException("Index writer has failed, restart is required: " + tragic, tragic);
+        }
+        return queue.offer(operation, bytes, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public IngestQueue<IngestOperation> queue() {
+        return queue;
+    }
+
+    /**
+     * Добавленные и заменённые документы.
+     */
+    public long indexedDocuments() {
+        return indexed.get();
+    }
+
+    public long deleteOperations() {
+        return deleted.get();
+    }
+
+    /**
+     * Принятые в очередь операции, которые не удалось применить к индексу.
+     */
+    public long droppedOperations() {
+        return dropped.get();
+    }
+
+    private void run() {
+        List<IngestQueue.Entry<IngestOperation>> batch = new ArrayList<>();
+        long commitNanos = TimeUnit.MILLISECONDS.toNanos(config.commitIntervalMs());
+        long lastCommit = System.nanoTime();
+        boolean uncommitted = false;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+                if (!batch.isEmpty()) {
+                    applyAll(batch);
+                    batch.clear();
+                    uncommitted = true;
+                }
+
+                // видимость обеспечивает фоновый reopen-поток, здесь только надёжность (commit)
+                long now = System.nanoTime();
+                if (uncommitted && now - lastCommit >= commitNanos) {
+                    writer.commit();
+                    lastCommit = now;
+                    uncommitted = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // операции пакета уже применены к writer'у, не удалось только зафиксировать их
+                batch.clear();
+                log.log(Level.SEVERE, "Index commit failed", e);
+            }
+        }
+    }
+
+    /**
+     * Ошибка одной операции (например, слишком длинный терм) не отменяет остальные операции пакета.
+     * После неустранимой ошибки writer закрыт, и всё, что осталось в очереди, только учитывается как потерянное.
+     */
+    private void applyAll(List<IngestQueue.Entry<IngestOperation>> batch) {
+        for (IngestQueue.Entry<IngestOperation> entry : batch) {
+            if (writer.getTragicException() != null) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            try {
+                apply(entry.item());
+            } catch (IOException | RuntimeException e) {
+                dropped.incrementAndGet();
+                log.log(Level.SEVERE, "Dropped " + entry.item().type() + " of document " + entry.item().id(), e);
+                continue;
+            }
+            try {
+                applied.accept(entry.item());
+            } catch (RuntimeException e) {
+                log.log(Level.SEVERE, "Post-apply hook failed for " + entry.item().type()
+                        + " of document " + entry.item().id(), e);
+            }
+        }
+    }
+
+    private void apply(IngestOperation operation) throws IOException {
+        switch (operation.type()) {
+            case ADD -> {
+                writer.addDocument(operation.document());
+                indexed.incrementAndGet();
+            }
+            case UPSERT -> {
+                // старые версии не удаляются из postings, а помечаются в doc values и вычищаются слиянием
+                writer.softUpdateDocument(idTerm(operation), operation.document(), softDeleteMarker());
+                indexed.incrementAndGet();
+            }
+            case DELETE -> {
+                writer.updateDocValues(idTerm(operation), softDeleteMarker());
+                deleted.incrementAndGet();
+            }
+        }
+    }
+
+    private static Term idTerm(IngestOperation operation) {
+        return new Term("id", operation.id());
+    }
+
+    private static NumericDocValuesField softDeleteMarker() {
+        return new NumericDocValuesField(IndexShard.SOFT_DELETES_FIELD, 1);
+    }
+
+    private void collectBatch(List<IngestQueue.Entry<IngestOperation>> batch) throws InterruptedException {
+        IngestQueue.Entry<IngestOperation> first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+
+        batch.add(first);
+        long bytes = first.bytes();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.maxBatchDelayMs());
+
+        while (batch.size() < config.maxBatchDocs() && bytes < config.maxBatchBytes()) {
+            IngestQueue.Entry<IngestOperation> next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) break;
+            }
+            batch.add(next);
+            bytes += next.bytes();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.getTragicException() == null) {
+            writer.commit();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.search.service;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь на запись, ограниченная и по числу элементов, и по их суммарному размеру в байтах.
+ */
+public class IngestQueue<E> {
+
+    public record Entry<E>(E item, long bytes, long enqueuedNanos) {}
+
+    private final int maxItems;
+    private final long maxBytes;
+
+    private final ArrayDeque<Entry<E>> entries = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long bytes;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder enqueueWaitNanos = new LongAdder();
+    private final LongAdder enqueued = new LongAdder();
+    private final AtomicLong maxEnqueueWaitNanos = new AtomicLong();
+    private final LongAdder queueLatencyNanos = new LongAdder();
+    private final LongAdder dequeued = new LongAdder();
+
+    public IngestQueue(int maxItems, long maxBytes) {
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Ждёт свободного места не дольше {@code timeout}; возвращает false, если место так и не появилось.
+     */
+    public boolean offer(E item, long itemBytes, long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            // слишком крупный элемент всё равно принимается в пустую очередь
+            while (entries.size() >= maxItems || (!entries.isEmpty() && bytes + itemBytes > maxBytes)) {
+                if (remaining <= 0) {
+                    rejected.increment();
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            long now = System.nanoTime();
+            entries.addLast(new Entry<>(item, itemBytes, now));
+            bytes += itemBytes;
+            notEmpty.signal();
+            recordEnqueueWait(now - start);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Entry<E> poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Entry<E> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                if (remaining <= 0) return null;
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry<E> dequeue() {
+        Entry<E> entry = entries.pollFirst();
+        if (entry != null) {
+            bytes -= entry.bytes();
+            notFull.signalAll();
+            queueLatencyNanos.add(System.nanoTime() - entry.enqueuedNanos());
+            dequeued.increment();
+        }
+        return entry;
+    }
+
+    private void recordEnqueueWait(long waitNanos) {
+        enqueued.increment();
+        enqueueWaitNanos.add(waitNanos);
+        maxEnqueueWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int maxItems() {
+        return maxItems;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long avgEnqueueWaitNanos() {
+        long count = enqueued.sum();
+        return count == 0 ? 0 : enqueueWaitNanos.sum() / count;
+    }
+
+    public long maxEnqueueWaitNanos() {
+        return maxEnqueueWaitNanos.get();
+    }
+
+    public long avgQueueLatencyNanos() {
+        long count = dequeued.sum();
+        return count == 0 ? 0 : queueLatencyNanos.sum() / count;
+    }
+}
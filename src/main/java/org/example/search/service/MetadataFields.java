@@ -0,0 +1,82 @@
+package org.example.search.service;
+
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.NumericUtils;
+import org.example.search.NumericRange;
+import org.example.search.SearchFilter;
+import org.example.search.model.IndexedDocument;
+
+import java.util.Map;
+
+/**
+ * Метаданные документа в индексе и {@link SearchFilter} поверх них. Теги — неанализируемые термы
+ * одного поля; число x хранится в поле num.x и как point (для обхода BKD-дерева), и как doc values
+ * (для проверки отдельных документов, когда выдачу ведёт более селективное условие).
+ */
+public final class MetadataFields {
+
+    static final String TAG_FIELD = "tag";
+    private static final String NUMBER_PREFIX = "num.";
+
+    private MetadataFields() {
+    }
+
+    public static void addTo(Document doc, IndexedDocument source) {
+        for (String tag : source.tags()) {
+            doc.add(new StringField(TAG_FIELD, tag, Field.Store.NO));
+        }
+        for (Map.Entry<String, Double> number : source.numbers().entrySet()) {
+            String field = NUMBER_PREFIX + number.getKey();
+            double value = number.getValue();
+            doc.add(new DoublePoint(field, value));
+            doc.add(new SortedNumericDocValuesField(field, NumericUtils.doubleToSortableLong(value)));
+        }
+    }
+
+    /**
+     * Фильтр из FILTER-клауз: на оценку не влияет и кэшируется Lucene как обычный запрос.
+     * null, если фильтр ничего не ограничивает.
+     */
+    public static Query toQuery(SearchFilter filter) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        int clauses = 0;
+        for (String tag : filter.getAllTagsList()) {
+            query.add(new TermQuery(new Term(TAG_FIELD, tag)), BooleanClause.Occur.FILTER);
+            clauses++;
+        }
+        if (filter.getAnyTagsCount() > 0) {
+            BooleanQuery.Builder anyOf = new BooleanQuery.Builder();
+            for (String tag : filter.getAnyTagsList()) {
+                anyOf.add(new TermQuery(new Term(TAG_FIELD, tag)), BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyOf.build(), BooleanClause.Occur.FILTER);
+            clauses++;
+        }
+        for (NumericRange range : filter.getRangesList()) {
+            query.add(rangeQuery(range), BooleanClause.Occur.FILTER);
+            clauses++;
+        }
+        return clauses == 0 ? null : query.build();
+    }
+
+    private static Query rangeQuery(NumericRange range) {
+        String field = NUMBER_PREFIX + range.getField();
+        double min = range.hasMin() ? range.getMin() : Double.NEGATIVE_INFINITY;
+        double max = range.hasMax() ? range.getMax() : Double.POSITIVE_INFINITY;
+        // Lucene сам выбирает: points, если диапазон ведёт выдачу, или doc values для уже отобранных документов
+        return new IndexOrDocValuesQuery(
+                DoublePoint.newRangeQuery(field, min, max),
+                SortedNumericDocValuesField.newSlowRangeQuery(field,
+                        NumericUtils.doubleToSortableLong(min), NumericUtils.doubleToSortableLong(max)));
+    }
+}
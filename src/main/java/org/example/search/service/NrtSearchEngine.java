@@ -0,0 +1,552 @@
+package org.example.search.service;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.QueryBuilder;
+import org.example.search.*;
+import org.example.search.embedding.EmbeddingProvider;
+import org.example.search.embedding.VectorMath;
+import org.example.search.engine.EngineSnapshot;
+import org.example.search.engine.SearchEngine;
+import org.example.search.engine.SearchHits;
+import org.example.search.model.IndexedDocument;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шардированный индекс Lucene с near-real-time reader'ами: запись идёт через очереди индексации шардов
+ * без commit на каждый документ, поиск — по searcher'ам из SearcherManager без общей блокировки.
+ * Поддерживает TEXT, VECTOR, HYBRID и FLAT_VECTOR, курсоры searchAfter и upsert/delete.
+ */
+public class NrtSearchEngine implements SearchEngine {
+
+    private static final long DOCUMENT_OVERHEAD_BYTES = 512;
+    private static final int HYBRID_CANDIDATES_FACTOR = 4;
+    private static final float DEFAULT_VECTOR_WEIGHT = 0.5f;
+    static final int SNIPPET_LENGTH = 100;
+    private static final float TITLE_BOOST = 2.0f;
+
+    private final StandardAnalyzer analyzer = new StandardAnalyzer();
+    // документ с данным id всегда попадает в шард hash(id) mod N
+    private final List<IndexShard> shards;
+
+    // null, если параллельный обход сегментов внутри запроса выключен
+    private final ExecutorService sliceExecutor;
+    private final Subtasks subtasks;
+
+    private final SearchServiceConfig config;
+    private final EmbeddingProvider embeddings;
+    private final SnippetHighlighter highlighter = new SnippetHighlighter(analyzer, SNIPPET_LENGTH);
+
+    private final QueryCache<String, Query> parsedQueryCache;
+    private final QueryCache<String, float[]> embeddingCache;
+    // null, если плоская матрица эмбеддингов выключена в конфигурации
+    private final FlatVectorIndex flatIndex;
+
+    /**
+     * @param searchExecutor пул, в котором выполняются запросы по шардам и ветки HYBRID;
+     *                       null — всё выполняется в вызывающем потоке
+     */
+    public NrtSearchEngine(SearchServiceConfig config, Executor searchExecutor) throws IOException {
+        this.config = config;
+        this.embeddings = config.embeddingProvider();
+        this.subtasks = new Subtasks(searchExecutor);
+        this.parsedQueryCache = new QueryCache<>("parsed_queries", config.queryCacheSize());
+        this.embeddingCache = new QueryCache<>("query_embeddings", config.queryCacheSize());
+        sliceExecutor = SearchExecutors.slicePool(config);
+        SlicingSearcherFactory searcherFactory = new SlicingSearcherFactory(sliceExecutor,
+                config.maxDocsPerSlice(), config.maxSegmentsPerSlice());
+        List<IndexShard> opened = new ArrayList<>(config.shards());
+        try {
+            for (int i = 0; i < config.shards(); i++) {
+                opened.add(new IndexShard(i, shardPath(config, i), config, analyzer, searcherFactory,
+                        this::applyToFlatIndex));
+            }
+        } catch (IOException e) {
+            for (IndexShard shard : opened) {
+                try {
+                    shard.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            if (sliceExecutor != null) {
+                sliceExecutor.shutdown();
+            }
+            throw e;
+        }
+        shards = List.copyOf(opened);
+
+        if (config.flatVectorIndex()) {
+            flatIndex = new FlatVectorIndex(embeddings.dimension(), VectorMath.best(), subtasks,
+                    config.flatScanChunkRows(), config.deletesPctAllowed());
+            try {
+                loadFlatIndex();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        } else {
+            flatIndex = null;
+        }
+    }
+
+    /**
+     * Матрица живёт только в памяти: при открытии существующего индекса она заполняется векторами живых
+     * документов. В FLOAT32 они читаются из поля embedding без потерь; квантованные INT8 векторы
+     * точности не хватает, и эмбеддинги пересчитываются из сохранённых title и content.
+     */
+    private void loadFlatIndex() throws IOException {
+        try (IndexSnapshot snapshot = new IndexSnapshot(shards)) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                for (LeafReaderContext leaf : snapshot.searcher(i).getIndexReader().leaves()) {
+                    if (config.vectorEncoding() == VectorEncoding.FLOAT32) {
+                        loadIndexedVectors(leaf.reader());
+                    } else {
+                        loadReembedded(leaf.reader());
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadIndexedVectors(LeafReader reader) throws IOException {
+        FloatVectorValues vectors = reader.getFloatVectorValues("embedding");
+        if (vectors == null) return;
+        Bits live = reader.getLiveDocs();
+        StoredFields storedFields = reader.storedFields();
+        for (int doc = vectors.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = vectors.nextDoc()) {
+            if (live != null && !live.get(doc)) continue;
+            // vectorValue() переиспользует буфер, но add копирует компоненты в матрицу
+            flatIndex.add(storedFields.document(doc, Set.of("id")).get("id"), vectors.vectorValue());
+        }
+    }
+
+    private void loadReembedded(LeafReader reader) throws IOException {
+        Bits live = reader.getLiveDocs();
+        StoredFields storedFields = reader.storedFields();
+        for (int doc = 0; doc < reader.maxDoc(); doc++) {
+            if (live != null && !live.get(doc)) continue;
+            Document stored = storedFields.document(doc, Set.of("id", "title", "content"));
+            flatIndex.add(stored.get("id"), embed(stored.get("title"), stored.get("content")));
+        }
+    }
+
+    private static Path shardPath(SearchServiceConfig config, int shard) {
+        if (config.indexPath() == null) return null;
+        return config.shards() == 1 ? config.indexPath() : config.indexPath().resolve("shard-" + shard);
+    }
+
+    private IngestPipeline ingestFor(String id) {
+        return shards.get(Math.floorMod(id.hashCode(), shards.size())).ingest();
+    }
+
+    /**
+     * Документ становится видимым поиску после ближайшего reopen, а не по возвращении из метода.
+     */
+    @Override
+    public void addDocument(IndexedDocument doc) throws Exception {
+        add(doc, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean add(IndexedDocument doc, long timeoutMs) throws InterruptedException {
+        float[] vector = embed(doc.title(), doc.body());
+        return ingestFor(doc.id()).submit(IngestOperation.add(doc.id(), toDocument(doc, vector), flatVector(vector)),
+                estimateBytes(doc), timeoutMs);
+    }
+
+    @Override
+    public boolean upsert(IndexedDocument doc, long timeoutMs) throws InterruptedException {
+        float[] vector = embed(doc.title(), doc.body());
+        return ingestFor(doc.id()).submit(IngestOperation.upsert(doc.id(), toDocument(doc, vector), flatVector(vector)),
+                estimateBytes(doc), timeoutMs);
+    }
+
+    @Override
+    public boolean delete(String id, long timeoutMs) throws InterruptedException {
+        return ingestFor(id).submit(IngestOperation.delete(id), DOCUMENT_OVERHEAD_BYTES + 2L * id.length(), timeoutMs);
+    }
+
+    private float[] flatVector(float[] vector) {
+        return flatIndex != null ? vector : null;
+    }
+
+    /**
+     * Плоская матрица обновляется потоком индексации шарда сразу после IndexWriter: операции над одним id
+     * попадают в неё в том же порядке, что и в Lucene, а операции, которые Lucene отверг, не попадают вовсе.
+     * Строки, ещё не видимые в снимке Lucene, отбрасываются при чтении результатов FLAT_VECTOR.
+     */
+    private void applyToFlatIndex(IngestOperation operation) {
+        if (flatIndex == null) return;
+        switch (operation.type()) {
+            case ADD -> flatIndex.add(operation.id(), operation.vector());
+            case UPSERT -> flatIndex.upsert(operation.id(), operation.vector());
+            case DELETE -> flatIndex.delete(operation.id());
+        }
+    }
+
+    @Override
+    public List<SearchResultItem> search(String query, int limit) throws IOException {
+        SearchRequest request = SearchRequest.newBuilder()
+                .setQuery(query)
+                .addFields(ResultField.TITLE)
+                .build();
+        try (EngineSnapshot snapshot = snapshot()) {
+            SearchHits hits = snapshot.search(request, limit);
+            List<SearchResultItem> items = new ArrayList<>(hits.size());
+            for (int i = 0; i < hits.size(); i++) {
+                SearchResult result = hits.result(i);
+                items.add(new SearchResultItem(result.getId(), result.getTitle(), hits.score(i)));
+            }
+            return items;
+        }
+    }
+
+    @Override
+    public EngineSnapshot snapshot() throws IOException {
+        IndexSnapshot snapshot = new IndexSnapshot(shards);
+        return new EngineSnapshot() {
+            @Override
+            public long version() {
+                // версия снимка меняется при каждом reopen с новыми изменениями в любом шарде
+                return snapshot.version();
+            }
+
+            @Override
+            public SearchHits search(SearchRequest request, int limit) throws IOException {
+                return page(snapshot, request, limit);
+            }
+
+            @Override
+            public void close() throws IOException {
+                snapshot.close();
+            }
+        };
+    }
+
+    /**
+     * Одна страница результатов. TEXT и VECTOR продолжают с позиции курсора через searchAfter,
+     * поэтому страница стоит O(limit), а не O(offset + limit); HYBRID и FLAT_VECTOR отбирают
+     * offset + limit лучших результатов и отбрасывают уже выданные.
+     */
+    private SearchHits page(IndexSnapshot snapshot, SearchRequest request, int limit) throws IOException {
+        ScoreDoc[] hits = topDocs(snapshot, request, limit).scoreDocs;
+        ResultReader reader = new ResultReader(snapshot, highlighter, request);
+        int offset = request.hasSearchAfter() ? request.getSearchAfter().getOffset() : 0;
+
+        return new SearchHits() {
+            @Override
+            public int size() {
+                return hits.length;
+            }
+
+            @Override
+            public float score(int i) {
+                return hits[i].score;
+            }
+
+            @Override
+            public SearchResult result(int i) throws IOException {
+                return reader.read(hits[i]);
+            }
+
+            @Override
+            public SearchCursor nextCursor() {
+                if (hits.length < limit) return null;
+                ScoreDoc last = hits[limit - 1];
+                return SearchCursor.newBuilder()
+                        .setScore(last.score)
+                        .setDoc(last.doc)
+                        .setShard(last.shardIndex)
+                        .setOffset(offset + limit)
+                        .build();
+            }
+        };
+    }
+
+    private TopDocs topDocs(IndexSnapshot snapshot, SearchRequest request, int limit) throws IOException {
+        SearchCursor cursor = request.hasSearchAfter() ? request.getSearchAfter() : null;
+        int offset = cursor == null ? 0 : cursor.getOffset();
+        Query filter = request.hasFilter() ? MetadataFields.toQuery(request.getFilter()) : null;
+
+        switch (request.getMethod()) {
+            case TEXT:
+                return scatter(snapshot, limit, (shard, searcher) ->
+                        searchText(searcher, request.getQuery(), limit, after(cursor, shard, searcher), filter));
+            case HYBRID:
+                return skip(searchHybrid(snapshot, request, offset + limit, filter), offset);
+            case FLAT_VECTOR:
+                if (filter != null) {
+                    throw new UnsupportedOperationException("FLAT_VECTOR search does not support filters");
+                }
+                return skip(searchFlat(snapshot, request.getQuery(), offset + limit), offset);
+            case VECTOR:
+            default:
+                // kNN отбирает кандидатов заново на каждой странице, поэтому их должно хватать на всю глубину
+                int candidates = Math.max(offset + limit, request.getNumCandidates());
+                return scatter(snapshot, limit, (shard, searcher) ->
+                        searchVector(searcher, request.getQuery(), limit, candidates, after(cursor, shard, searcher),
+                                filter));
+        }
+    }
+
+    private interface ShardSearch {
+        TopDocs search(int shard, IndexSearcher searcher) throws IOException;
+    }
+
+    /**
+     * Запрос выполняется во всех шардах параллельно (первый — в текущем потоке), лучшие topN
+     * сливаются через TopDocs.merge; при равных оценках раньше идёт меньший номер шарда.
+     */
+    private TopDocs scatter(IndexSnapshot snapshot, int topN, ShardSearch search) throws IOException {
+        List<FutureTask<TopDocs>> tasks = new ArrayList<>(snapshot.size() - 1);
+        for (int i = 1; i < snapshot.size(); i++) {
+            int shard = i;
+            tasks.add(subtasks.fork(() -> search.search(shard, snapshot.searcher(shard))));
+        }
+        TopDocs[] shardHits = new TopDocs[snapshot.size()];
+        shardHits[0] = search.search(0, snapshot.searcher(0));
+        for (int i = 1; i < shardHits.length; i++) {
+            shardHits[i] = Subtasks.join(tasks.get(i - 1));
+        }
+        for (int i = 0; i < shardHits.length; i++) {
+            for (ScoreDoc sd : shardHits[i].scoreDocs) {
+                sd.shardIndex = i;
+            }
+        }
+        return TopDocs.merge(topN, shardHits);
+    }
+
+    /**
+     * Позиция курсора внутри шарда. TopDocs.merge упорядочивает равные оценки по номеру шарда,
+     * поэтому в шардах до курсорного все документы с той же оценкой уже выданы, а в шардах после — ещё нет.
+     */
+    private static ScoreDoc after(SearchCursor cursor, int shard, IndexSearcher searcher) {
+        if (cursor == null) return null;
+        int doc;
+        if (shard < cursor.getShard()) {
+            doc = Math.max(0, searcher.getIndexReader().maxDoc() - 1);
+        } else if (shard > cursor.getShard()) {
+            doc = -1;
+        } else {
+            doc = cursor.getDoc();
+        }
+        return new ScoreDoc(doc, cursor.getScore());
+    }
+
+    private static TopDocs skip(TopDocs docs, int offset) {
+        ScoreDoc[] hits = docs.scoreDocs;
+        int from = Math.min(offset, hits.length);
+        return new TopDocs(docs.totalHits, Arrays.copyOfRange(hits, from, hits.length));
+    }
+
+    /**
+     * @param filter ограничение по метаданным или null; применяется до отбора кандидатов в графе,
+     *               поэтому отфильтрованный запрос возвращает полные k результатов
+     */
+    private TopDocs searchVector(IndexSearcher searcher, String queryText, int k, int numCandidates,
+                                 ScoreDoc after, Query filter) throws IOException {
+        float[] v = queryEmbedding(queryText);
+        // больше кандидатов — выше recall и дольше обход графа; в выдачу попадают лучшие k
+        Query query = config.vectorEncoding().query("embedding", v, Math.max(k, numCandidates), filter);
+        return after == null ? searcher.search(query, k) : searcher.searchAfter(after, query, k);
+    }
+
+    /**
+     * Точные k ближайших из плоской матрицы, переведённые в документы снимка по id. Строки, которых
+     * в снимке ещё (или уже) нет, и устаревшие версии одного id пропускаются, поэтому из матрицы
+     * запрашивается с запасом, пока не наберётся k документов или матрица не кончится: короткая
+     * страница означает, что результатов больше нет.
+     */
+    private TopDocs searchFlat(IndexSnapshot snapshot, String queryText, int k) throws IOException {
+        if (flatIndex == null) {
+            throw new UnsupportedOperationException("FLAT_VECTOR search requires flatVectorIndex to be enabled");
+        }
+        float[] query = queryEmbedding(queryText);
+        List<ScoreDoc> hits = new ArrayList<>(k);
+        for (int fetch = k; ; fetch = (int) Math.min(Integer.MAX_VALUE, 2L * fetch)) {
+            List<FlatVectorIndex.Hit> rows = flatIndex.search(query, fetch);
+            hits.clear();
+            Set<String> seen = new HashSet<>();
+            for (FlatVectorIndex.Hit hit : rows) {
+                if (hits.size() == k) break;
+                if (!seen.add(hit.id())) continue;
+                int shard = Math.floorMod(hit.id().hashCode(), shards.size());
+                TopDocs byId = snapshot.searcher(shard).search(new TermQuery(new Term("id", hit.id())), 1);
+                if (byId.scoreDocs.length == 0) continue;
+                hits.add(new ScoreDoc(byId.scoreDocs[0].doc, hit.score(), shard));
+            }
+            if (hits.size() == k || rows.size() < fetch || fetch == Integer.MAX_VALUE) break;
+        }
+        return new TopDocs(new TotalHits(hits.size(), TotalHits.Relation.EQUAL_TO), hits.toArray(new ScoreDoc[0]));
+    }
+
+    /**
+     * BM25 и kNN выполняются параллельно на одном и том же снимке индекса и сливаются на сервере.
+     */
+    private TopDocs searchHybrid(IndexSnapshot snapshot, SearchRequest request, int limit, Query filter)
+            throws IOException {
+        // на глубоких страницах множитель ограничен тем же потолком, что и num_candidates в запросе
+        int candidates = Math.max(limit, Math.min(limit * HYBRID_CANDIDATES_FACTOR, config.maxNumCandidates()));
+        FutureTask<TopDocs> vector = subtasks.fork(() -> scatter(snapshot, candidates, (shard, searcher) ->
+                searchVector(searcher, request.getQuery(), candidates, request.getNumCandidates(), null, filter)));
+        TopDocs text = scatter(snapshot, candidates, (shard, searcher) ->
+                searchText(searcher, request.getQuery(), candidates, null, filter));
+
+        if (request.getFusion() == HybridFusion.WEIGHTED) {
+            float weight = request.hasVectorWeight() ? request.getVectorWeight() : DEFAULT_VECTOR_WEIGHT;
+            return ResultFusion.weighted(text, Subtasks.join(vector), weight, limit);
+        }
+        return ResultFusion.reciprocalRank(limit, text, Subtasks.join(vector));
+    }
+
+    private float[] queryEmbedding(String queryText) {
+        float[] cached = embeddingCache.get(queryText);
+        if (cached != null) {
+            return cached;
+        }
+        float[] v = embeddings.embed(queryText);
+        embeddingCache.put(queryText, v);
+        return v;
+    }
+
+    /**
+     * BM25 по title и content с анализом запроса тем же StandardAnalyzer, что и при индексации.
+     * Точный подсчёт совпадений останавливается на k, после чего Lucene пропускает блоки,
+     * не способные попасть в top-k (WAND / block-max). Фильтр добавляется FILTER-клаузой: он не влияет
+     * на оценку, а конъюнкция перескакивает через не прошедшие его документы.
+     */
+    private TopDocs searchText(IndexSearcher searcher, String queryText, int k, ScoreDoc after, Query filter)
+            throws IOException {
+        Query query = parsedQueryCache.get(queryText);
+        if (query == null) {
+            query = buildTextQuery(queryText);
+            parsedQueryCache.put(queryText, query);
+        }
+        if (filter != null) {
+            query = new BooleanQuery.Builder()
+                    .add(query, BooleanClause.Occur.MUST)
+                    .add(filter, BooleanClause.Occur.FILTER)
+                    .build();
+        }
+        return SlicingSearcherFactory.topScoreDocs(searcher, query, k, after);
+    }
+
+    private Query buildTextQuery(String queryText) {
+        QueryBuilder builder = new QueryBuilder(analyzer);
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        addFieldClauses(query, builder.createBooleanQuery("title", queryText), TITLE_BOOST);
+        addFieldClauses(query, builder.createBooleanQuery("content", queryText), 1.0f);
+        // пустой BooleanQuery ничего не находит — это и нужно для пустого запроса
+        return query.build();
+    }
+
+    private static void addFieldClauses(BooleanQuery.Builder target, Query fieldQuery, float boost) {
+        if (fieldQuery == null) return;
+        // плоская дизъюнкция термов эффективнее для WAND, чем вложенные BooleanQuery
+        if (fieldQuery instanceof BooleanQuery bq && bq.getMinimumNumberShouldMatch() == 0
+                && bq.clauses().stream().allMatch(c -> c.getOccur() == BooleanClause.Occur.SHOULD)) {
+            for (BooleanClause clause : bq.clauses()) {
+                target.add(boosted(clause.getQuery(), boost), BooleanClause.Occur.SHOULD);
+            }
+        } else {
+            target.add(boosted(fieldQuery, boost), BooleanClause.Occur.SHOULD);
+        }
+    }
+
+    private static Query boosted(Query query, float boost) {
+        return boost == 1.0f ? query : new BoostQuery(query, boost);
+    }
+
+    /**
+     * Очереди шардов суммируются; средние — по шардам, максимумы — максимум по шардам.
+     */
+    @Override
+    public IngestStats ingestStats() {
+        IngestStats.Builder ingestStats = IngestStats.newBuilder();
+        long avgEnqueueWaitNanos = 0;
+        long avgQueueLatencyNanos = 0;
+        long maxEnqueueWaitNanos = 0;
+        for (IndexShard shard : shards) {
+            IngestQueue<IngestOperation> queue = shard.ingest().queue();
+            ingestStats.setQueuedDocuments(ingestStats.getQueuedDocuments() + queue.size())
+                    .setQueuedBytes(ingestStats.getQueuedBytes() + queue.bytes())
+                    .setMaxQueuedDocuments(ingestStats.getMaxQueuedDocuments() + queue.maxItems())
+                    .setMaxQueuedBytes(ingestStats.getMaxQueuedBytes() + queue.maxBytes())
+                    .setRejectedDocuments(ingestStats.getRejectedDocuments() + queue.rejectedCount())
+                    .setIndexedDocuments(ingestStats.getIndexedDocuments() + shard.ingest().indexedDocuments())
+                    .setDeleteOperations(ingestStats.getDeleteOperations() + shard.ingest().deleteOperations())
+                    .setDroppedDocuments(ingestStats.getDroppedDocuments() + shard.ingest().droppedOperations());
+            avgEnqueueWaitNanos += queue.avgEnqueueWaitNanos();
+            avgQueueLatencyNanos += queue.avgQueueLatencyNanos();
+            maxEnqueueWaitNanos = Math.max(maxEnqueueWaitNanos, queue.maxEnqueueWaitNanos());
+        }
+        return ingestStats.setAvgEnqueueWaitMicros(TimeUnit.NANOSECONDS.toMicros(avgEnqueueWaitNanos / shards.size()))
+                .setMaxEnqueueWaitMicros(TimeUnit.NANOSECONDS.toMicros(maxEnqueueWaitNanos))
+                .setAvgQueueLatencyMicros(TimeUnit.NANOSECONDS.toMicros(avgQueueLatencyNanos / shards.size()))
+                .build();
+    }
+
+    @Override
+    public List<CacheStats> cacheStats() {
+        return List.of(parsedQueryCache.stats(), embeddingCache.stats());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sliceExecutor != null) {
+            sliceExecutor.shutdown();
+        }
+        for (IndexShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private float[] embed(String title, String content) {
+        return embeddings.embed(title + " " + content);
+    }
+
+    private Document toDocument(IndexedDocument source, float[] vector) {
+        Document doc = new Document();
+        doc.add(new StringField("id", source.id(), Field.Store.YES));
+        doc.add(new TextField("title", source.title(), Field.Store.YES));
+        // сниппет хранится до content, чтобы при выдаче не читать тело документа
+        String content = source.body();
+        doc.add(new StoredField("snippet", content.substring(0, Math.min(SNIPPET_LENGTH, content.length()))));
+        doc.add(new TextField("content", content, Field.Store.YES));
+        doc.add(config.vectorEncoding().field("embedding", vector));
+        MetadataFields.addTo(doc, source);
+        return doc;
+    }
+
+    private long estimateBytes(IndexedDocument doc) {
+        // строки документа в UTF-16 плюс вектор эмбеддинга, метаданные и накладные расходы на поля
+        long chars = doc.id().length() + doc.title().length() + doc.body().length();
+        for (String tag : doc.tags()) {
+            chars += tag.length();
+        }
+        long numbers = doc.numbers().size() * (Double.BYTES + Long.BYTES + 16L);
+        // вектор для плоской матрицы ждёт в очереди вместе с документом
+        long flat = flatIndex != null ? (long) embeddings.dimension() * Float.BYTES : 0;
+        return DOCUMENT_OVERHEAD_BYTES + 2 * chars + numbers + flat
+                + (long) embeddings.dimension() * config.vectorEncoding().bytesPerComponent();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.search.service;
+
+import org.example.search.CacheStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Ограниченный LRU-кэш, разбитый на сегменты со своей блокировкой, чтобы параллельные
+ * запросы не конкурировали за один монитор.
+ */
+public class QueryCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final String name;
+    private final List<Segment<K, V>> segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QueryCache(String name, int capacity) {
+        this.name = name;
+        int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        List<Segment<K, V>> segments = new ArrayList<>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new Segment<>(perSegment, evictions));
+        }
+        this.segments = List.copyOf(segments);
+    }
+
+    public V get(K key) {
+        return get(key, null);
+    }
+
+    /**
+     * Значение, не прошедшее проверку {@code valid} (например, посчитанное на старом поколении индекса),
+     * считается промахом.
+     */
+    public V get(K key, Predicate<V> valid) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value != null && valid != null && !valid.test(value)) {
+            value = null;
+        }
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public CacheStats stats() {
+        return CacheStats.newBuilder()
+                .setName(name)
+                .setHits(hits())
+                .setMisses(misses())
+                .setEvictions(evictions())
+                .setSize(size())
+                .build();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        return segments.get((h ^ (h >>> 16)) & (SEGMENTS - 1));
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.search.service;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldVisitor;
+
+/**
+ * Читает только id и запрошенные title/snippet; полное содержимое документа загружается, лишь если нужна
+ * подсветка или в документе нет готового сниппета (индекс, созданный до его появления).
+ * Поля хранятся в порядке id, title, snippet, content, поэтому чтение обрывается сразу после нужных.
+ */
+public class ResultFieldsVisitor extends StoredFieldVisitor {
+
+    private final boolean needTitle;
+    private final boolean needSnippet;
+    private final boolean needContent;
+
+    private String id;
+    private String title;
+    private String snippet;
+    private String content;
+
+    public ResultFieldsVisitor(boolean needContent) {
+        this(true, true, needContent);
+    }
+
+    public ResultFieldsVisitor(boolean needTitle, boolean needSnippet, boolean needContent) {
+        this.needTitle = needTitle;
+        this.needSnippet = needSnippet;
+        this.needContent = needContent;
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) {
+        switch (fieldInfo.name) {
+            case "id":
+                return Status.YES;
+            case "title":
+                return needTitle ? Status.YES : Status.NO;
+            case "snippet":
+                return needSnippet ? Status.YES : Status.NO;
+            case "content":
+                return needContent || (needSnippet && snippet == null) ? Status.YES : Status.STOP;
+            default:
+                return done() ? Status.STOP : Status.NO;
+        }
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, String value) {
+        switch (fieldInfo.name) {
+            case "id" -> id = value;
+            case "title" -> title = value;
+            case "snippet" -> snippet = value;
+            case "content" -> content = value;
+            default -> { }
+        }
+    }
+
+    private boolean done() {
+        return id != null && (!needTitle || title != null) && (!needSnippet || snippet != null)
+                && (!needContent || content != null);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String title() {
+        return title;
+    }
+
+    public String snippet() {
+        if (snippet == null && content != null) {
+            return content.substring(0, Math.min(NrtSearchEngine.SNIPPET_LENGTH, content.length()));
+        }
+        return snippet == null ? "" : snippet;
+    }
+
+    public String content() {
+        return content;
+    }
+}
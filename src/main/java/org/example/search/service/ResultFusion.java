@@ -0,0 +1,70 @@
+package org.example.search.service;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Слияние результатов текстового и векторного поиска, полученных на одном и том же снимке индекса:
+ * документ определяется парой (shardIndex, doc), согласованной в обоих списках.
+ */
+public final class ResultFusion {
+
+    /** Стандартная константа RRF из работы Cormack et al. */
+    public static final int RRF_K = 60;
+
+    private ResultFusion() {
+    }
+
+    /**
+     * Reciprocal rank fusion: score(d) = Σ 1 / (RRF_K + rank(d)); абсолютные оценки списков не учитываются.
+     */
+    public static TopDocs reciprocalRank(int limit, TopDocs... lists) {
+        Map<Long, Float> scores = new HashMap<>();
+        for (TopDocs list : lists) {
+            ScoreDoc[] docs = list.scoreDocs;
+            for (int rank = 0; rank < docs.length; rank++) {
+                scores.merge(key(docs[rank]), 1f / (RRF_K + rank + 1), Float::sum);
+            }
+        }
+        return top(scores, limit);
+    }
+
+    /**
+     * Взвешенная сумма оценок, нормированных на максимум в своём списке:
+     * (1 - w) * text + w * vector. Список с нулевым весом не добавляет в выдачу своих документов.
+     */
+    public static TopDocs weighted(TopDocs text, TopDocs vector, float vectorWeight, int limit) {
+        Map<Long, Float> scores = new HashMap<>();
+        addNormalized(scores, text, 1f - vectorWeight);
+        addNormalized(scores, vector, vectorWeight);
+        return top(scores, limit);
+    }
+
+    private static void addNormalized(Map<Long, Float> scores, TopDocs list, float weight) {
+        if (list.scoreDocs.length == 0 || weight == 0) return;
+        float max = list.scoreDocs[0].score;
+        for (ScoreDoc sd : list.scoreDocs) {
+            float normalized = max > 0 ? sd.score / max : 0f;
+            scores.merge(key(sd), weight * normalized, Float::sum);
+        }
+    }
+
+    private static long key(ScoreDoc sd) {
+        return ((long) sd.shardIndex << 32) | (sd.doc & 0xFFFFFFFFL);
+    }
+
+    private static TopDocs top(Map<Long, Float> scores, int limit) {
+        ScoreDoc[] fused = scores.entrySet().stream()
+                .map(e -> new ScoreDoc((int) (long) e.getKey(), e.getValue(), (int) (e.getKey() >> 32)))
+                .sorted((a, b) -> a.score != b.score ? Float.compare(b.score, a.score)
+                        : a.shardIndex != b.shardIndex ? Integer.compare(a.shardIndex, b.shardIndex)
+                        : Integer.compare(a.doc, b.doc))
+                .limit(limit)
+                .toArray(ScoreDoc[]::new);
+        return new TopDocs(new TotalHits(scores.size(), TotalHits.Relation.EQUAL_TO), fused);
+    }
+}
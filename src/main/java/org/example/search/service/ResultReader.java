@@ -0,0 +1,59 @@
+package org.example.search.service;
+
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.ScoreDoc;
+import org.example.search.ResultField;
+import org.example.search.SearchRequest;
+import org.example.search.SearchResult;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Превращает попадания (шард, номер документа) в SearchResult с учётом проекции полей и подсветки запроса.
+ * Действителен, пока не освобождён снимок индекса, из которого создан.
+ */
+public class ResultReader {
+
+    private final StoredFields[] storedFields;
+    private final SnippetHighlighter highlighter;
+    private final boolean needTitle;
+    private final boolean needSnippet;
+    private final boolean highlight;
+    private final Set<String> terms;
+
+    public ResultReader(IndexSnapshot snapshot, SnippetHighlighter highlighter, SearchRequest request)
+            throws IOException {
+        // один StoredFields на шард и запрос вместо searcher.doc() на каждое попадание
+        this.storedFields = new StoredFields[snapshot.size()];
+        for (int i = 0; i < storedFields.length; i++) {
+            storedFields[i] = snapshot.searcher(i).storedFields();
+        }
+        this.highlighter = highlighter;
+        List<ResultField> projection = request.getFieldsList();
+        this.needTitle = projection.isEmpty() || projection.contains(ResultField.TITLE);
+        this.needSnippet = projection.isEmpty() || projection.contains(ResultField.SNIPPET);
+        this.highlight = needSnippet && request.getHighlight();
+        this.terms = highlight ? highlighter.queryTerms(request.getQuery()) : Set.of();
+    }
+
+    public SearchResult read(ScoreDoc hit) throws IOException {
+        ResultFieldsVisitor fields = new ResultFieldsVisitor(needTitle, needSnippet, highlight);
+        storedFields[hit.shardIndex].document(hit.doc, fields);
+
+        SearchResult.Builder result = SearchResult.newBuilder().setId(fields.id());
+        if (needTitle) {
+            result.setTitle(fields.title());
+        }
+        if (needSnippet) {
+            String snippet = fields.snippet();
+            if (highlight) {
+                String highlighted = highlighter.highlight(fields.content(), terms);
+                if (highlighted != null) snippet = highlighted;
+            }
+            result.setSnippet(snippet);
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.search.service;
+
+public enum SearchExecution {
+    /** Поиск выполняется прямо в потоке gRPC-обработчика, без перекладывания в другой пул. */
+    DIRECT,
+    /** Отдельный виртуальный поток на запрос (JDK 21+); на более старых JDK используется BOUNDED_POOL. */
+    VIRTUAL_THREADS,
+    /** Фиксированный пул с ограниченной очередью; при переполнении запрос отклоняется. */
+    BOUNDED_POOL
+}
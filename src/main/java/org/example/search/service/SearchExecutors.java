@@ -0,0 +1,97 @@
+package org.example.search.service;
+
+import org.apache.lucene.index.TieredMergePolicy;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+public final class SearchExecutors {
+
+    private static final Logger log = Logger.getLogger(SearchExecutors.class.getName());
+
+    private static final int SLICE_QUEUE_PER_THREAD = 16;
+    private static final int DEFAULT_SEGMENTS_PER_TIER = 10;
+
+    private SearchExecutors() {
+    }
+
+    /**
+     * Создаёт пул для выбранной модели исполнения; для {@link SearchExecution#DIRECT} возвращает null.
+     */
+    public static ExecutorService create(SearchServiceConfig config) {
+        switch (config.searchExecution()) {
+            case DIRECT:
+                return null;
+            case VIRTUAL_THREADS:
+                ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+                if (virtual != null) {
+                    return virtual;
+                }
+                log.warning("Virtual threads require JDK 21+, falling back to a bounded pool");
+                return boundedPool(config.searchThreads(), config.searchQueueCapacity(), "search-executor-");
+            case BOUNDED_POOL:
+            default:
+                return boundedPool(config.searchThreads(), config.searchQueueCapacity(), "search-executor-");
+        }
+    }
+
+    /**
+     * Пул для срезов сегментов внутри запроса; null, если параллелизм внутри запроса выключен.
+     * Отдельный от пула запросов: поток запроса ждёт свои срезы, и в общем пуле это могло бы
+     * занять все потоки ожидающими. При переполнении очереди Lucene выполняет срез в потоке запроса.
+     */
+    public static ExecutorService slicePool(SearchServiceConfig config) {
+        int threads = config.intraQueryThreads();
+        if (threads == 0) {
+            return null;
+        }
+        return boundedPool(threads, threads * SLICE_QUEUE_PER_THREAD, "search-slice-");
+    }
+
+    /**
+     * TieredMergePolicy, оставляющая на каждом уровне не меньше сегментов, чем потоков в пуле срезов,
+     * и ограничивающая размер сегмента, чтобы большой индекс не схлопнулся в один неделимый срез.
+     * Soft-deleted документы считаются удалёнными: сегменты, где их доля выше deletesPctAllowed,
+     * сливаются в первую очередь, и при слиянии такие документы отбрасываются.
+     */
+    public static TieredMergePolicy mergePolicy(SearchServiceConfig config) {
+        TieredMergePolicy policy = new TieredMergePolicy();
+        int segmentsPerTier = Math.max(DEFAULT_SEGMENTS_PER_TIER, config.intraQueryThreads());
+        policy.setSegmentsPerTier(segmentsPerTier);
+        policy.setMaxMergeAtOnce(segmentsPerTier);
+        policy.setMaxMergedSegmentMB(config.maxMergedSegmentMb());
+        policy.setDeletesPctAllowed(config.deletesPctAllowed());
+        return policy;
+    }
+
+    public static ExecutorService boundedPool(int threads, int queueCapacity, String namePrefix) {
+        BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new ArrayBlockingQueue<>(queueCapacity)
+                : new SynchronousQueue<>();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+                daemonThreadFactory(namePrefix), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} через рефлексию, чтобы сборка оставалась на JDK 17.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.search.service;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.example.search.SearchResult;
+import org.example.search.engine.SearchHits;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Отправляет результаты по одному по мере чтения из снимка, пока транспорт готов их принять
+ * ({@link ServerCallStreamObserver#isReady()}); остальное дописывается из onReady.
+ * Снимок индекса удерживается до последнего результата или отмены вызова.
+ */
+public class SearchResultStream {
+
+    private final ServerCallStreamObserver<SearchResult> call;
+
+    private SearchHits hits;
+    private Closeable release;
+    private int next;
+    private boolean finished;
+
+    /**
+     * Обработчики onReady/onCancel ставятся сразу: gRPC разрешает это только в исходном вызове метода,
+     * а сам поиск выполняется позже в пуле.
+     */
+    public SearchResultStream(ServerCallStreamObserver<SearchResult> call) {
+        this.call = call;
+        call.setOnReadyHandler(this::drain);
+        call.setOnCancelHandler(this::cancel);
+    }
+
+    public synchronized void start(SearchHits hits, Closeable release) {
+        this.hits = hits;
+        this.release = release;
+        if (finished) {
+            // вызов отменён до окончания поиска
+            closeQuietly();
+            return;
+        }
+        drain();
+    }
+
+    private synchronized void drain() {
+        if (hits == null || finished) return;
+        try {
+            while (next < hits.size() && call.isReady()) {
+                call.onNext(hits.result(next++));
+            }
+            if (next == hits.size()) {
+                finish();
+                call.onCompleted();
+            }
+        } catch (Exception e) {
+            finish();
+            call.onError(e);
+        }
+    }
+
+    private synchronized void cancel() {
+        finish();
+    }
+
+    private void finish() {
+        if (finished) return;
+        finished = true;
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (release == null) return;
+        try {
+            release.close();
+        } catch (IOException ignored) {
+        }
+        release = null;
+    }
+}
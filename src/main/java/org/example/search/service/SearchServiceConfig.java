@@ -0,0 +1,452 @@
+package org.example.search.service;
+
+import org.example.search.embedding.EmbeddingProvider;
+import org.example.search.embedding.HashWordVectors;
+import org.example.search.embedding.WordVectorEmbeddingProvider;
+
+import java.nio.file.Path;
+
+public final class SearchServiceConfig {
+
+    public static final int DEFAULT_EMBEDDING_DIMENSION = 128;
+    public static final int DEFAULT_HNSW_MAX_CONN = 16;
+    public static final int DEFAULT_HNSW_BEAM_WIDTH = 100;
+    public static final int DEFAULT_MAX_NUM_CANDIDATES = 10_000;
+    public static final int DEFAULT_MAX_DOCS_PER_SLICE = 250_000;
+    public static final int DEFAULT_MAX_SEGMENTS_PER_SLICE = 5;
+
+    private final Path indexPath;
+    private final int maxBatchDocs;
+    private final long maxBatchBytes;
+    private final long maxBatchDelayMs;
+    private final long refreshIntervalMs;
+    private final long commitIntervalMs;
+    private final double ramBufferSizeMb;
+    private final int maxQueuedDocs;
+    private final long maxQueuedBytes;
+    private final long enqueueTimeoutMs;
+    private final EmbeddingProvider embeddingProvider;
+    private final SearchExecution searchExecution;
+    private final int searchThreads;
+    private final int searchQueueCapacity;
+    private final int queryCacheSize;
+    private final int resultCacheSize;
+    private final int hnswMaxConn;
+    private final int hnswBeamWidth;
+    private final int maxNumCandidates;
+    private final VectorEncoding vectorEncoding;
+    private final int intraQueryThreads;
+    private final int shards;
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+    private final double maxMergedSegmentMb;
+    private final double deletesPctAllowed;
+    private final boolean flatVectorIndex;
+    private final int flatScanChunkRows;
+
+    private SearchServiceConfig(Builder builder) {
+        this.indexPath = builder.indexPath;
+        this.maxBatchDocs = builder.maxBatchDocs;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.maxBatchDelayMs = builder.maxBatchDelayMs;
+        this.refreshIntervalMs = builder.refreshIntervalMs;
+        this.commitIntervalMs = builder.commitIntervalMs;
+        this.ramBufferSizeMb = builder.ramBufferSizeMb;
+        this.maxQueuedDocs = builder.maxQueuedDocs;
+        this.maxQueuedBytes = builder.maxQueuedBytes;
+        this.enqueueTimeoutMs = builder.enqueueTimeoutMs;
+        this.embeddingProvider = builder.embeddingProvider != null
+                ? builder.embeddingProvider
+                : new WordVectorEmbeddingProvider(new HashWordVectors(DEFAULT_EMBEDDING_DIMENSION));
+        this.searchExecution = builder.searchExecution;
+        this.searchThreads = builder.searchThreads;
+        this.searchQueueCapacity = builder.searchQueueCapacity;
+        this.queryCacheSize = builder.queryCacheSize;
+        this.resultCacheSize = builder.resultCacheSize;
+        this.hnswMaxConn = builder.hnswMaxConn;
+        this.hnswBeamWidth = builder.hnswBeamWidth;
+        this.maxNumCandidates = builder.maxNumCandidates;
+        this.vectorEncoding = builder.vectorEncoding;
+        this.intraQueryThreads = builder.intraQueryThreads;
+        this.shards = builder.shards;
+        this.maxDocsPerSlice = builder.maxDocsPerSlice;
+        this.maxSegmentsPerSlice = builder.maxSegmentsPerSlice;
+        this.maxMergedSegmentMb = builder.maxMergedSegmentMb;
+        this.deletesPctAllowed = builder.deletesPctAllowed;
+        this.flatVectorIndex = builder.flatVectorIndex;
+        this.flatScanChunkRows = builder.flatScanChunkRows;
+    }
+
+    public static SearchServiceConfig defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Каталог индекса на диске; {@code null} означает индекс в памяти без сохранения между запусками.
+     */
+    public Path indexPath() {
+        return indexPath;
+    }
+
+    public int maxBatchDocs() {
+        return maxBatchDocs;
+    }
+
+    public long maxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public long maxBatchDelayMs() {
+        return maxBatchDelayMs;
+    }
+
+    public long refreshIntervalMs() {
+        return refreshIntervalMs;
+    }
+
+    public long commitIntervalMs() {
+        return commitIntervalMs;
+    }
+
+    public double ramBufferSizeMb() {
+        return ramBufferSizeMb;
+    }
+
+    public int maxQueuedDocs() {
+        return maxQueuedDocs;
+    }
+
+    public long maxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    public long enqueueTimeoutMs() {
+        return enqueueTimeoutMs;
+    }
+
+    public EmbeddingProvider embeddingProvider() {
+        return embeddingProvider;
+    }
+
+    public SearchExecution searchExecution() {
+        return searchExecution;
+    }
+
+    public int searchThreads() {
+        return searchThreads;
+    }
+
+    public int searchQueueCapacity() {
+        return searchQueueCapacity;
+    }
+
+    public int queryCacheSize() {
+        return queryCacheSize;
+    }
+
+    public int resultCacheSize() {
+        return resultCacheSize;
+    }
+
+    /**
+     * Максимальное число соседей вершины HNSW-графа: больше — выше recall, дольше индексация и больше памяти.
+     */
+    public int hnswMaxConn() {
+        return hnswMaxConn;
+    }
+
+    /**
+     * Размер очереди кандидатов при вставке вершины в граф (efConstruction).
+     */
+    public int hnswBeamWidth() {
+        return hnswBeamWidth;
+    }
+
+    /**
+     * Верхняя граница num_candidates в запросе: столько элементов очереди кандидатов kNN выделяется на запрос.
+     */
+    public int maxNumCandidates() {
+        return maxNumCandidates;
+    }
+
+    public VectorEncoding vectorEncoding() {
+        return vectorEncoding;
+    }
+
+    /**
+     * Потоки для параллельного обхода срезов сегментов внутри одного запроса; 0 — без параллелизма.
+     */
+    public int intraQueryThreads() {
+        return intraQueryThreads;
+    }
+
+    public int maxDocsPerSlice() {
+        return maxDocsPerSlice;
+    }
+
+    /**
+     * Число шардов, между которыми документы распределяются по хэшу id. Каждый шард хранится
+     * в indexPath/shard-N (при одном шарде — прямо в indexPath); менять число шардов у
+     * существующего индекса нельзя, иначе документы окажутся не в тех шардах.
+     */
+    public int shards() {
+        return shards;
+    }
+
+    public int maxSegmentsPerSlice() {
+        return maxSegmentsPerSlice;
+    }
+
+    /**
+     * Верхняя граница размера сегмента после слияния. Чтобы все потоки получили работу,
+     * её стоит держать около размера индекса, делённого на intraQueryThreads.
+     */
+    public double maxMergedSegmentMb() {
+        return maxMergedSegmentMb;
+    }
+
+    /**
+     * Допустимая доля удалённых и заменённых документов в индексе, % (от 20 до 50).
+     * Меньше — индекс ближе к объёму живых данных ценой более частых слияний.
+     */
+    public double deletesPctAllowed() {
+        return deletesPctAllowed;
+    }
+
+    /**
+     * Хранить ли копию всех эмбеддингов в плоской off-heap матрице для точного поиска FLAT_VECTOR.
+     * Стоит dimension * 4 байта на документ сверх индекса Lucene, поэтому по умолчанию выключено;
+     * без матрицы FLAT_VECTOR отвечает UNIMPLEMENTED.
+     */
+    public boolean flatVectorIndex() {
+        return flatVectorIndex;
+    }
+
+    /**
+     * Строк матрицы на одну задачу параллельного перебора FLAT_VECTOR.
+     */
+    public int flatScanChunkRows() {
+        return flatScanChunkRows;
+    }
+
+    public static final class Builder {
+        private Path indexPath;
+        private int maxBatchDocs = 10_000;
+        private long maxBatchBytes = 8L * 1024 * 1024;
+        private long maxBatchDelayMs = 10;
+        private long refreshIntervalMs = 100;
+        private long commitIntervalMs = 5_000;
+        private double ramBufferSizeMb = 64;
+        private int maxQueuedDocs = 100_000;
+        private long maxQueuedBytes = 128L * 1024 * 1024;
+        private long enqueueTimeoutMs = 100;
+        private EmbeddingProvider embeddingProvider;
+        private SearchExecution searchExecution = SearchExecution.BOUNDED_POOL;
+        private int searchThreads = Runtime.getRuntime().availableProcessors() * 2;
+        private int searchQueueCapacity = 1_024;
+        private int queryCacheSize = 10_000;
+        private int resultCacheSize = 10_000;
+        private int hnswMaxConn = DEFAULT_HNSW_MAX_CONN;
+        private int hnswBeamWidth = DEFAULT_HNSW_BEAM_WIDTH;
+        private int maxNumCandidates = DEFAULT_MAX_NUM_CANDIDATES;
+        private VectorEncoding vectorEncoding = VectorEncoding.FLOAT32;
+        private int intraQueryThreads;
+        private int shards = 1;
+        private int maxDocsPerSlice = DEFAULT_MAX_DOCS_PER_SLICE;
+        private int maxSegmentsPerSlice = DEFAULT_MAX_SEGMENTS_PER_SLICE;
+        private double maxMergedSegmentMb = 5 * 1024;
+        private double deletesPctAllowed = 20;
+        private boolean flatVectorIndex;
+        private int flatScanChunkRows = 16_384;
+
+        private Builder() {
+        }
+
+        public Builder indexPath(Path indexPath) {
+            this.indexPath = indexPath;
+            return this;
+        }
+
+        public Builder maxBatchDocs(int maxBatchDocs) {
+            this.maxBatchDocs = maxBatchDocs;
+            return this;
+        }
+
+        public Builder maxBatchBytes(long maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        public Builder maxBatchDelayMs(long maxBatchDelayMs) {
+            this.maxBatchDelayMs = maxBatchDelayMs;
+            return this;
+        }
+
+        public Builder refreshIntervalMs(long refreshIntervalMs) {
+            this.refreshIntervalMs = refreshIntervalMs;
+            return this;
+        }
+
+        public Builder commitIntervalMs(long commitIntervalMs) {
+            this.commitIntervalMs = commitIntervalMs;
+            return this;
+        }
+
+        public Builder ramBufferSizeMb(double ramBufferSizeMb) {
+            this.ramBufferSizeMb = ramBufferSizeMb;
+            return this;
+        }
+
+        public Builder maxQueuedDocs(int maxQueuedDocs) {
+            this.maxQueuedDocs = maxQueuedDocs;
+            return this;
+        }
+
+        public Builder maxQueuedBytes(long maxQueuedBytes) {
+            this.maxQueuedBytes = maxQueuedBytes;
+            return this;
+        }
+
+        public Builder enqueueTimeoutMs(long enqueueTimeoutMs) {
+            this.enqueueTimeoutMs = enqueueTimeoutMs;
+            return this;
+        }
+
+        public Builder embeddingProvider(EmbeddingProvider embeddingProvider) {
+            this.embeddingProvider = embeddingProvider;
+            return this;
+        }
+
+        public Builder searchExecution(SearchExecution searchExecution) {
+            this.searchExecution = searchExecution;
+            return this;
+        }
+
+        public Builder searchThreads(int searchThreads) {
+            this.searchThreads = searchThreads;
+            return this;
+        }
+
+        public Builder searchQueueCapacity(int searchQueueCapacity) {
+            this.searchQueueCapacity = searchQueueCapacity;
+            return this;
+        }
+
+        public Builder queryCacheSize(int queryCacheSize) {
+            this.queryCacheSize = queryCacheSize;
+            return this;
+        }
+
+        public Builder resultCacheSize(int resultCacheSize) {
+            this.resultCacheSize = resultCacheSize;
+            return this;
+        }
+
+        public Builder hnswMaxConn(int hnswMaxConn) {
+            this.hnswMaxConn = hnswMaxConn;
+            return this;
+        }
+
+        public Builder hnswBeamWidth(int hnswBeamWidth) {
+            this.hnswBeamWidth = hnswBeamWidth;
+            return this;
+        }
+
+        public Builder maxNumCandidates(int maxNumCandidates) {
+            this.maxNumCandidates = maxNumCandidates;
+            return this;
+        }
+
+        public Builder vectorEncoding(VectorEncoding vectorEncoding) {
+            this.vectorEncoding = vectorEncoding;
+            return this;
+        }
+
+        public Builder intraQueryThreads(int intraQueryThreads) {
+            this.intraQueryThreads = intraQueryThreads;
+            return this;
+        }
+
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder maxDocsPerSlice(int maxDocsPerSlice) {
+            this.maxDocsPerSlice = maxDocsPerSlice;
+            return this;
+        }
+
+        public Builder maxSegmentsPerSlice(int maxSegmentsPerSlice) {
+            this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+            return this;
+        }
+
+        public Builder maxMergedSegmentMb(double maxMergedSegmentMb) {
+            this.maxMergedSegmentMb = maxMergedSegmentMb;
+            return this;
+        }
+
+        public Builder deletesPctAllowed(double deletesPctAllowed) {
+            this.deletesPctAllowed = deletesPctAllowed;
+            return this;
+        }
+
+        public Builder flatVectorIndex(boolean flatVectorIndex) {
+            this.flatVectorIndex = flatVectorIndex;
+            return this;
+        }
+
+        public Builder flatScanChunkRows(int flatScanChunkRows) {
+            this.flatScanChunkRows = flatScanChunkRows;
+            return this;
+        }
+
+        public SearchServiceConfig build() {
+            if (maxBatchDocs <= 0 || maxBatchBytes <= 0) {
+                throw new IllegalArgumentException("Batch limits must be positive");
+            }
+            if (maxQueuedDocs <= 0 || maxQueuedBytes <= 0 || enqueueTimeoutMs < 0) {
+                throw new IllegalArgumentException("Invalid ingest queue bounds");
+            }
+            if (searchExecution == null || searchThreads <= 0 || searchQueueCapacity < 0) {
+                throw new IllegalArgumentException("Invalid search execution settings");
+            }
+            if (queryCacheSize <= 0 || resultCacheSize <= 0) {
+                throw new IllegalArgumentException("Cache sizes must be positive");
+            }
+            if (maxBatchDelayMs < 0 || refreshIntervalMs <= 0 || commitIntervalMs <= 0) {
+                throw new IllegalArgumentException("Invalid ingest intervals");
+            }
+            // пределы Lucene95HnswVectorsFormat
+            if (hnswMaxConn <= 0 || hnswMaxConn > 512 || hnswBeamWidth <= 0 || hnswBeamWidth > 3200) {
+                throw new IllegalArgumentException("Invalid HNSW parameters");
+            }
+            if (maxNumCandidates <= 0) {
+                throw new IllegalArgumentException("maxNumCandidates must be positive");
+            }
+            if (intraQueryThreads < 0 || maxDocsPerSlice <= 0 || maxSegmentsPerSlice <= 0
+                    || maxMergedSegmentMb <= 0) {
+                throw new IllegalArgumentException("Invalid intra-query concurrency settings");
+            }
+            // пределы TieredMergePolicy.setDeletesPctAllowed
+            if (deletesPctAllowed < 20 || deletesPctAllowed > 50) {
+                throw new IllegalArgumentException("deletesPctAllowed must be in [20, 50]");
+            }
+            if (shards <= 0) {
+                throw new IllegalArgumentException("Shard count must be positive");
+            }
+            if (flatScanChunkRows <= 0) {
+                throw new IllegalArgumentException("flatScanChunkRows must be positive");
+            }
+            if (vectorEncoding == null) {
+                throw new IllegalArgumentException("Vector encoding must be set");
+            }
+            return new SearchServiceConfig(this);
+        }
+    }
+}
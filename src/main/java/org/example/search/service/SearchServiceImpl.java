@@ -1,177 +1,391 @@
 package org.example.search.service;
 
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.*;
-import org.apache.lucene.index.*;
-import org.apache.lucene.search.*;
-import org.apache.lucene.search.KnnVectorQuery;
-import org.apache.lucene.store.ByteBuffersDirectory;
 import org.example.search.*;
+import org.example.search.engine.EngineSnapshot;
+import org.example.search.engine.SearchEngine;
+import org.example.search.engine.SearchHits;
+import org.example.search.model.IndexedDocument;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
-public class SearchServiceImpl extends SearchServiceGrpc.SearchServiceImplBase {
+/**
+ * gRPC-слой поиска: проверка запросов, пул поиска, кэш результатов и потоковая выдача.
+ * Индексация и сам поиск делегируются {@link SearchEngine}; по умолчанию это {@link NrtSearchEngine}.
+ */
+public class SearchServiceImpl extends SearchServiceGrpc.SearchServiceImplBase implements Closeable {
 
-    private static final int BATCH_SIZE = 32;
-    private static final long FLUSH_INTERVAL_MS = 500;
+    private static final int BULK_REQUEST_WINDOW = 64;
+    private static final int TEXT_TOP_K = 10;
+    private static final int VECTOR_TOP_K = 5;
+    private static final int MAX_LIMIT = 1_000;
+    // глубже offset + limit не листаем: на эту глубину выделяются очереди top-k и кандидаты kNN
+    private static final int MAX_DEPTH = 10_000;
+    private static final int MAX_BATCH_SIZE = 256;
 
-    private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
-    private final StandardAnalyzer analyzer = new StandardAnalyzer();
-    private final IndexWriter writer;
-    private final SearcherManager searcherManager;
+    private final SearchEngine engine;
 
-    private final ExecutorService searchExecutor = Executors.newFixedThreadPool(
-            Runtime.getRuntime().availableProcessors() * 2,
-            r -> {
-                Thread t = new Thread(r, "search-executor-" + new AtomicInteger().incrementAndGet());
-                t.setDaemon(true);
-                return t;
-            }
-    );
+    // null в режиме DIRECT: поиск выполняется в потоке gRPC
+    private final ExecutorService searchExecutor;
+    private final Subtasks subtasks;
+
+    private final SearchServiceConfig config;
+
+    private record CachedResults(long generation, SearchResponse response) {}
 
-    private final BlockingQueue<Document> ingestQueue = new LinkedBlockingQueue<>();
-    private final ScheduledExecutorService ingestScheduler =
-            Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "ingest-worker");
-                t.setDaemon(true);
-                return t;
-            });
+    // ключ — сам запрос с нормализованным limit: protobuf-сообщения неизменяемы и сравниваются по значению
+    private final QueryCache<SearchRequest, CachedResults> resultCache;
 
     public SearchServiceImpl() {
+        this(SearchServiceConfig.defaults());
+    }
+
+    public SearchServiceImpl(SearchServiceConfig config) {
+        this.config = config;
+        this.resultCache = new QueryCache<>("results", config.resultCacheSize());
+        searchExecutor = SearchExecutors.create(config);
+        subtasks = new Subtasks(searchExecutor);
         try {
-            writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
-            searcherManager = new SearcherManager(writer, null);
+            engine = new NrtSearchEngine(config, searchExecutor);
         } catch (IOException e) {
+            if (searchExecutor != null) {
+                searchExecutor.shutdown();
+            }
             throw new RuntimeException(e);
         }
+    }
 
-        ingestScheduler.scheduleWithFixedDelay(
-                this::flushBatch,
-                FLUSH_INTERVAL_MS,
-                FLUSH_INTERVAL_MS,
-                TimeUnit.MILLISECONDS
-        );
+    /**
+     * Сервис поверх готового движка; движок закрывается вместе с сервисом.
+     */
+    public SearchServiceImpl(SearchEngine engine, SearchServiceConfig config) {
+        this.config = config;
+        this.engine = engine;
+        this.resultCache = new QueryCache<>("results", config.resultCacheSize());
+        searchExecutor = SearchExecutors.create(config);
+        subtasks = new Subtasks(searchExecutor);
+    }
+
+    private void submit(boolean accepted) {
+        if (!accepted) {
+            throw Status.RESOURCE_EXHAUSTED
+                    .withDescription("Ingest queue is full, retry later")
+                    .asRuntimeException();
+        }
     }
 
     @Override
     public void addDocument(AddDocumentRequest request, StreamObserver<AddDocumentResponse> responseObserver) {
         try {
-            Document doc = new Document();
-            doc.add(new StringField("id", request.getId(), Field.Store.YES));
-            doc.add(new TextField("title", request.getTitle(), Field.Store.YES));
-            doc.add(new TextField("content", request.getContent(), Field.Store.YES));
-            doc.add(new KnnVectorField("embedding",
-                    generateEmbedding(request.getTitle() + " " + request.getContent())));
+            submit(engine.add(toDocument(request), config.enqueueTimeoutMs()));
+
+            responseObserver.onNext(AddDocumentResponse.newBuilder()
+                    .setSuccess(true)
+                    .setQueueDepth((int) engine.ingestStats().getQueuedDocuments())
+                    .build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
 
-            ingestQueue.offer(doc);
+    /**
+     * Заменяет все документы с тем же id; изменение видно поиску после ближайшего reopen, как и добавление.
+     */
+    @Override
+    public void upsertDocument(AddDocumentRequest request, StreamObserver<AddDocumentResponse> responseObserver) {
+        try {
+            requireId(request.getId());
+            submit(engine.upsert(toDocument(request), config.enqueueTimeoutMs()));
 
-            responseObserver.onNext(AddDocumentResponse.newBuilder().setSuccess(true).build());
+            responseObserver.onNext(AddDocumentResponse.newBuilder()
+                    .setSuccess(true)
+                    .setQueueDepth((int) engine.ingestStats().getQueuedDocuments())
+                    .build());
             responseObserver.onCompleted();
         } catch (Exception e) {
-            responseObserver.onError(e);
+            responseObserver.onError(toStatus(e));
         }
     }
 
     @Override
-    public void search(SearchRequest request, StreamObserver<SearchResponse> responseObserver) {
-        searchExecutor.submit(() -> {
-            IndexSearcher searcher = null;
-            try {
-                searcherManager.maybeRefresh();
-                searcher = searcherManager.acquire();
-
-                List<SearchResult> results = new ArrayList<>();
-
-                if (request.getMethod() == SearchMethod.TEXT) {
-                    Query q = new TermQuery(new Term("content", request.getQuery()));
-                    TopDocs docs = searcher.search(q, 10);
-
-                    for (ScoreDoc sd : docs.scoreDocs) {
-                        Document d = searcher.doc(sd.doc);
-                        results.add(SearchResult.newBuilder()
-                                .setId(d.get("id"))
-                                .setTitle(d.get("title"))
-                                .setSnippet(d.get("content")
-                                        .substring(0, Math.min(100, d.get("content").length())))
-                                .build());
-                    }
-                } else {
-                    float[] v = generateEmbedding(request.getQuery());
-                    TopDocs docs = searcher.search(new KnnVectorQuery("embedding", v, 5), 5);
-
-                    for (ScoreDoc sd : docs.scoreDocs) {
-                        Document d = searcher.doc(sd.doc);
-                        results.add(SearchResult.newBuilder()
-                                .setId(d.get("id"))
-                                .setTitle(d.get("title"))
-                                .setSnippet(d.get("content")
-                                        .substring(0, Math.min(100, d.get("content").length())))
-                                .build());
+    public void deleteDocument(DeleteDocumentRequest request, StreamObserver<DeleteDocumentResponse> responseObserver) {
+        try {
+            requireId(request.getId());
+            submit(engine.delete(request.getId(), config.enqueueTimeoutMs()));
+
+            responseObserver.onNext(DeleteDocumentResponse.newBuilder()
+                    .setSuccess(true)
+                    .setQueueDepth((int) engine.ingestStats().getQueuedDocuments())
+                    .build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
+
+    private static void requireId(String id) {
+        if (id.isEmpty()) {
+            throw Status.INVALID_ARGUMENT.withDescription("Document id is required").asRuntimeException();
+        }
+    }
+
+    /**
+     * Движок не поддерживает запрошенную операцию или метод поиска либо больше не может принимать запись.
+     */
+    private static Throwable toStatus(Throwable e) {
+        if (e instanceof UnsupportedOperationException) {
+            return Status.UNIMPLEMENTED.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+        }
+        if (e instanceof IllegalStateException) {
+            return Status.FAILED_PRECONDITION.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+        }
+        return e;
+    }
+
+    /**
+     * Сообщения потока запрашиваются окнами вручную, и новое окно открывается только после постановки
+     * документов в очередь: пока очередь заполнена, клиент не получает разрешения слать дальше.
+     * Документ, не дождавшийся места за enqueueTimeoutMs, отклоняется; любая другая ошибка завершает вызов.
+     */
+    @Override
+    public StreamObserver<AddDocumentRequest> bulkAddDocuments(StreamObserver<BulkAddResponse> responseObserver) {
+        ServerCallStreamObserver<BulkAddResponse> call =
+                (ServerCallStreamObserver<BulkAddResponse>) responseObserver;
+        call.disableAutoRequest();
+        call.request(BULK_REQUEST_WINDOW);
+
+        return new StreamObserver<>() {
+            private long accepted;
+            private long rejected;
+            private int inWindow;
+            private boolean failed;
+
+            @Override
+            public void onNext(AddDocumentRequest request) {
+                if (failed) return;
+                try {
+                    if (engine.add(toDocument(request), config.enqueueTimeoutMs())) {
+                        accepted++;
+                    } else {
+                        rejected++;
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(Status.CANCELLED.withDescription("Interrupted while enqueueing").asRuntimeException());
+                    return;
+                } catch (Exception e) {
+                    fail(toStatus(e));
+                    return;
+                }
+                if (++inWindow == BULK_REQUEST_WINDOW / 2) {
+                    inWindow = 0;
+                    call.request(BULK_REQUEST_WINDOW / 2);
                 }
+            }
+
+            private void fail(Throwable status) {
+                failed = true;
+                responseObserver.onError(status);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // клиент оборвал поток: уже принятые документы остаются в очереди
+            }
+
+            @Override
+            public void onCompleted() {
+                if (failed) return;
+                responseObserver.onNext(BulkAddResponse.newBuilder()
+                        .setAccepted(accepted)
+                        .setRejected(rejected)
+                        .build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
 
-                responseObserver.onNext(SearchResponse.newBuilder().addAllResults(results).build());
+    @Override
+    public void search(SearchRequest request, StreamObserver<SearchResponse> responseObserver) {
+        dispatch(responseObserver, () -> {
+            try (EngineSnapshot snapshot = engine.snapshot()) {
+                responseObserver.onNext(cachedSearch(snapshot, request));
                 responseObserver.onCompleted();
+            } catch (Exception e) {
+                responseObserver.onError(toStatus(e));
+            }
+        });
+    }
 
+    /**
+     * Те же результаты, что и у search, но каждый отправляется сразу после чтения из индекса
+     * с учётом готовности транспорта; результаты не кэшируются и не буферизуются целиком.
+     */
+    @Override
+    public void searchStream(SearchRequest request, StreamObserver<SearchResult> responseObserver) {
+        SearchResultStream stream = new SearchResultStream((ServerCallStreamObserver<SearchResult>) responseObserver);
+        dispatch(responseObserver, () -> {
+            EngineSnapshot snapshot = null;
+            try {
+                snapshot = engine.snapshot();
+                int limit = resolveLimit(request);
+                validate(request, limit);
+                stream.start(snapshot.search(request, limit), snapshot);
+                // снимок теперь освобождает поток результатов
+                snapshot = null;
             } catch (Exception e) {
-                responseObserver.onError(e);
+                responseObserver.onError(toStatus(e));
             } finally {
-                if (searcher != null) {
+                if (snapshot != null) {
                     try {
-                        searcherManager.release(searcher);
+                        snapshot.close();
                     } catch (IOException ignored) {}
                 }
             }
         });
     }
 
-    private void flushBatch() {
-        try {
-            List<Document> batch = new ArrayList<>(BATCH_SIZE);
-            ingestQueue.drainTo(batch, BATCH_SIZE);
+    /**
+     * Все запросы пакета выполняются на одном захваченном снимке индекса (одна точка во времени)
+     * и параллельно в пуле поиска; запросы, до которых пул не дошёл, выполняет сам поток пакета.
+     */
+    @Override
+    public void batchSearch(BatchSearchRequest request, StreamObserver<BatchSearchResponse> responseObserver) {
+        if (request.getRequestsCount() > MAX_BATCH_SIZE) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Batch is limited to " + MAX_BATCH_SIZE + " queries")
+                    .asRuntimeException());
+            return;
+        }
+        dispatch(responseObserver, () -> {
+            try (EngineSnapshot snapshot = engine.snapshot()) {
+                List<FutureTask<SearchResponse>> tasks = new ArrayList<>(request.getRequestsCount());
+                for (SearchRequest query : request.getRequestsList()) {
+                    tasks.add(subtasks.fork(() -> cachedSearch(snapshot, query)));
+                }
+                BatchSearchResponse.Builder response = BatchSearchResponse.newBuilder();
+                for (FutureTask<SearchResponse> task : tasks) {
+                    response.addResponses(Subtasks.join(task));
+                }
 
-            if (batch.isEmpty()) return;
+                responseObserver.onNext(response.build());
+                responseObserver.onCompleted();
+            } catch (Exception e) {
+                responseObserver.onError(toStatus(e));
+            }
+        });
+    }
 
-            writer.addDocuments(batch);
-            writer.commit();
-            searcherManager.maybeRefresh();
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static int resolveLimit(SearchRequest request) {
+        int limit = request.getLimit() > 0 ? request.getLimit()
+                : request.getMethod() == SearchMethod.VECTOR || request.getMethod() == SearchMethod.FLAT_VECTOR
+                ? VECTOR_TOP_K : TEXT_TOP_K;
+        if (request.getLimit() < 0 || limit > MAX_LIMIT) {
+            throw Status.INVALID_ARGUMENT
+                    .withDescription("limit must be in [0, " + MAX_LIMIT + "]")
+                    .asRuntimeException();
         }
+        return limit;
     }
 
-    private float[] generateEmbedding(String text) {
-        String[] tokens = text.toLowerCase().split("\\W+");
-        float[] v = new float[128];
-
-        for (int i = 0; i < tokens.length; i++) {
-            float[] w = getPretrainedWordVector(tokens[i]);
-            for (int j = 0; j < v.length; j++) {
-                v[j] += w[j];
+    private void validate(SearchRequest request, int limit) {
+        if (request.hasSearchAfter()) {
+            int offset = request.getSearchAfter().getOffset();
+            if (offset < 0 || (long) offset + limit > MAX_DEPTH) {
+                throw Status.INVALID_ARGUMENT
+                        .withDescription("search_after.offset + limit must be in [0, " + MAX_DEPTH + "]")
+                        .asRuntimeException();
             }
         }
+        if (request.getNumCandidates() < 0 || request.getNumCandidates() > config.maxNumCandidates()) {
+            throw Status.INVALID_ARGUMENT
+                    .withDescription("num_candidates must be in [0, " + config.maxNumCandidates() + "]")
+                    .asRuntimeException();
+        }
+        // вес вне [0, 1] сделал бы вес BM25 отрицательным; NaN не проходит ни одно сравнение
+        if (request.hasVectorWeight() && !(request.getVectorWeight() >= 0 && request.getVectorWeight() <= 1)) {
+            throw Status.INVALID_ARGUMENT
+                    .withDescription("vector_weight must be in [0, 1]")
+                    .asRuntimeException();
+        }
+    }
+
+    private SearchResponse cachedSearch(EngineSnapshot snapshot, SearchRequest request) throws IOException {
+        int limit = resolveLimit(request);
+        validate(request, limit);
+        long generation = snapshot.version();
+        if (generation < 0) {
+            return runSearch(snapshot, request, limit);
+        }
+        SearchRequest key = request.getLimit() == limit ? request : request.toBuilder().setLimit(limit).build();
+
+        CachedResults cached = resultCache.get(key, c -> c.generation() == generation);
+        if (cached != null) {
+            return cached.response();
+        }
+
+        SearchResponse response = runSearch(snapshot, request, limit);
+        resultCache.put(key, new CachedResults(generation, response));
+        return response;
+    }
+
+    private static SearchResponse runSearch(EngineSnapshot snapshot, SearchRequest request, int limit)
+            throws IOException {
+        SearchHits hits = snapshot.search(request, limit);
+        SearchResponse.Builder response = SearchResponse.newBuilder();
+        for (int i = 0; i < hits.size(); i++) {
+            response.addResults(hits.result(i));
+        }
+        SearchCursor next = hits.nextCursor();
+        if (next != null) {
+            response.setNextCursor(next);
+        }
+        return response.build();
+    }
 
-        float norm = 0;
-        for (float x : v) norm += x * x;
-        norm = (float) Math.sqrt(norm);
-        if (norm > 1e-6f) {
-            for (int i = 0; i < v.length; i++) v[i] /= norm;
+    private void dispatch(StreamObserver<?> responseObserver, Runnable task) {
+        if (searchExecutor == null) {
+            task.run();
+            return;
         }
+        try {
+            searchExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Search executor is saturated, retry later")
+                    .asRuntimeException());
+        }
+    }
 
-        return v;
+    @Override
+    public void getStats(StatsRequest request, StreamObserver<StatsResponse> responseObserver) {
+        StatsResponse response = StatsResponse.newBuilder()
+                .setIngest(engine.ingestStats())
+                .addAllCaches(engine.cacheStats())
+                .addCaches(resultCache.stats())
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
     }
 
-    private float[] getPretrainedWordVector(String token) {
-        float[] vec = new float[128];
-        int h = token.hashCode();
-        for (int i = 0; i < vec.length; i++) {
-            vec[i] = (float) Math.sin((h + i * 31) & 0xFF);
+    @Override
+    public void close() throws IOException {
+        if (searchExecutor != null) {
+            searchExecutor.shutdown();
         }
-        return vec;
+        engine.close();
+    }
+
+    private static IndexedDocument toDocument(AddDocumentRequest request) {
+        return new IndexedDocument(request.getId(), request.getTitle(), request.getContent(),
+                request.getTagsList(), request.getNumbersMap());
     }
 }
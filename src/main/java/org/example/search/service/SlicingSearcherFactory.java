@@ -0,0 +1,59 @@
+package org.example.search.service;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Searcher'ы, которые обходят сегменты одного запроса параллельно: сегменты группируются в срезы
+ * не больше maxDocsPerSlice документов и maxSegmentsPerSlice сегментов, каждый срез — отдельная задача
+ * в executor'е. Без executor'а (null) запрос, как и раньше, выполняется в одном потоке.
+ */
+public class SlicingSearcherFactory extends SearcherFactory {
+
+    private final Executor executor;
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+
+    public SlicingSearcherFactory(Executor executor, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        this.executor = executor;
+        this.maxDocsPerSlice = maxDocsPerSlice;
+        this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+    }
+
+    @Override
+    public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+        if (executor == null) {
+            return new IndexSearcher(reader);
+        }
+        int maxDocs = maxDocsPerSlice;
+        int maxSegments = maxSegmentsPerSlice;
+        // slices() вызывается из конструктора IndexSearcher, до инициализации полей подкласса,
+        // поэтому параметры передаются захваченными переменными: javac присваивает их до вызова super()
+        return new IndexSearcher(reader, executor) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return slices(leaves, maxDocs, maxSegments);
+            }
+        };
+    }
+
+    /**
+     * Top-k по оценке, начиная после {@code after} (null — с начала). Executor searcher'а задействуется
+     * только перегрузками с CollectorManager: общий менеджер собирает срезы параллельно и делит между ними
+     * минимальный конкурентный балл, так что WAND пропускает блоки во всех срезах сразу.
+     */
+    public static TopDocs topScoreDocs(IndexSearcher searcher, Query query, int k, ScoreDoc after)
+            throws IOException {
+        return searcher.search(query, TopScoreDocCollector.createSharedManager(k, after, k));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.search.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Строит фрагмент текста вокруг первого совпадения с термами запроса и выделяет совпадения тегами {@code <b>}.
+ * Текст анализируется тем же анализатором, что и при индексации, поэтому совпадения совпадают с поиском.
+ */
+public class SnippetHighlighter {
+
+    private static final String PRE_TAG = "<b>";
+    private static final String POST_TAG = "</b>";
+    private static final String ELLIPSIS = "...";
+
+    private final Analyzer analyzer;
+    private final int fragmentLength;
+
+    public SnippetHighlighter(Analyzer analyzer, int fragmentLength) {
+        this.analyzer = analyzer;
+        this.fragmentLength = fragmentLength;
+    }
+
+    public Set<String> queryTerms(String queryText) {
+        Set<String> terms = new HashSet<>();
+        try (TokenStream ts = analyzer.tokenStream("content", queryText)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                terms.add(term.toString());
+            }
+            ts.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    /**
+     * @return подсвеченный фрагмент или null, если совпадений в тексте нет
+     */
+    public String highlight(String content, Set<String> terms) {
+        if (content == null || content.isEmpty() || terms.isEmpty()) return null;
+
+        List<int[]> matches = new ArrayList<>();
+        int windowEnd = Integer.MAX_VALUE;
+        try (TokenStream ts = analyzer.tokenStream("content", content)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+            ts.reset();
+            while (ts.incrementToken() && offset.startOffset() < windowEnd) {
+                if (terms.contains(term.toString())) {
+                    if (matches.isEmpty()) {
+                        windowEnd = windowStart(offset.startOffset()) + fragmentLength;
+                    }
+                    matches.add(new int[]{offset.startOffset(), offset.endOffset()});
+                }
+            }
+            ts.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (matches.isEmpty()) return null;
+
+        int start = windowStart(matches.get(0)[0]);
+        int end = Math.min(content.length(), start + fragmentLength);
+
+        StringBuilder sb = new StringBuilder(fragmentLength + 32);
+        if (start > 0) sb.append(ELLIPSIS);
+        int pos = start;
+        for (int[] match : matches) {
+            if (match[1] > end) break;
+            sb.append(content, pos, match[0])
+                    .append(PRE_TAG)
+                    .append(content, match[0], match[1])
+                    .append(POST_TAG);
+            pos = match[1];
+        }
+        sb.append(content, pos, end);
+        if (end < content.length()) sb.append(ELLIPSIS);
+        return sb.toString();
+    }
+
+    private int windowStart(int firstMatch) {
+        // немного контекста перед первым совпадением
+        return Math.max(0, firstMatch - fragmentLength / 4);
+    }
+}
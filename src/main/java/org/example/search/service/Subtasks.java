@@ -0,0 +1,44 @@
+package org.example.search.service;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+/**
+ * Подзадачи запроса в пуле поиска. Если пул ещё не взял подзадачу, {@link #join} выполнит её
+ * в текущем потоке, поэтому ожидание подзадачи не может заблокировать заполненный пул.
+ */
+public class Subtasks {
+
+    // null в режиме DIRECT: все подзадачи выполняются в join
+    private final Executor executor;
+
+    public Subtasks(Executor executor) {
+        this.executor = executor;
+    }
+
+    public <T> FutureTask<T> fork(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        if (executor != null) {
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException ignored) {
+                // выполним в join
+            }
+        }
+        return future;
+    }
+
+    public static <T> T join(FutureTask<T> future) throws IOException {
+        future.run(); // no-op, если задача уже выполняется или выполнена
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IOException(e.getCause());
+        }
+    }
+}
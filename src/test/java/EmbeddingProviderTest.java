@@ -0,0 +1,148 @@
+import org.example.search.embedding.*;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingProviderTest {
+
+    @Test
+    void tokenizer_splitsOnNonWordCharacters_andHashesLowerCase() {
+        List<String> tokens = new ArrayList<>();
+        List<Integer> hashes = new ArrayList<>();
+
+        TextTokenizer.tokenize("  Hello, gRPC_server!42 ", (text, start, end, hash) -> {
+            tokens.add(text.subSequence(start, end).toString());
+            hashes.add(hash);
+        });
+
+        assertEquals(List.of("Hello", "gRPC_server", "42"), tokens);
+        assertEquals("hello".hashCode(), hashes.get(0));
+        assertEquals("grpc_server".hashCode(), hashes.get(1));
+    }
+
+    @Test
+    void tokenizer_keepsRegexTokenBoundariesForNonAsciiText() {
+        for (String text : new String[]{"Привет, мир_2!", "naïve café_au_lait", "ÄBC über9 snake_Case"}) {
+            List<String> tokens = new ArrayList<>();
+            TextTokenizer.tokenize(text, (t, start, end, hash) -> {
+                String token = t.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+                assertEquals(token.hashCode(), hash);
+                tokens.add(token);
+            });
+
+            List<String> expected = Arrays.stream(text.toLowerCase(Locale.ROOT).split("\\W+"))
+                    .filter(token -> !token.isEmpty())
+                    .toList();
+            assertEquals(expected, tokens, text);
+        }
+    }
+
+    @Test
+    void hashEmbedding_matchesPerTokenSinVectors() {
+        EmbeddingProvider provider = new WordVectorEmbeddingProvider(new HashWordVectors(128));
+
+        float[] expected = new float[128];
+        for (String token : new String[]{"vector", "search"}) {
+            int h = token.hashCode();
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] += (float) Math.sin((h + i * 31) & 0xFF);
+            }
+        }
+        normalize(expected);
+
+        assertArrayEquals(expected, provider.embed("Vector search"), 1e-5f);
+    }
+
+    @Test
+    void embedding_isNormalized_andEmptyTextIsZero() {
+        EmbeddingProvider provider = new WordVectorEmbeddingProvider(new HashWordVectors(64));
+
+        float[] v = provider.embed("distributed system");
+        float norm = 0;
+        for (float x : v) norm += x * x;
+        assertEquals(1f, norm, 1e-4f);
+
+        for (float x : provider.embed("  ")) {
+            assertEquals(0f, x);
+        }
+    }
+
+    @Test
+    void mappedWordVectors_loadWord2VecBinary_andFallBackForUnknownTokens(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("vectors.bin");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("2 4\n".getBytes(StandardCharsets.US_ASCII));
+        writeWord(out, "Lucene", new float[]{1, 0, 0, 0});
+        writeWord(out, "grpc", new float[]{0, 2, 0, 0});
+        Files.write(file, out.toByteArray());
+
+        MappedWordVectors vectors = MappedWordVectors.load(file, 16);
+        assertEquals(4, vectors.dimension());
+        assertEquals(2, vectors.vocabularySize());
+
+        EmbeddingProvider provider = new WordVectorEmbeddingProvider(vectors, new HashWordVectors(4));
+        assertArrayEquals(new float[]{1, 0, 0, 0}, provider.embed("lucene"), 1e-6f);
+        assertArrayEquals(new float[]{0.4472136f, 0.8944272f, 0, 0}, provider.embed("LUCENE grpc"), 1e-6f);
+        assertTrue(vectors.cache().hits() > 0, "Repeated tokens should be served from the cache");
+
+        float[] unknown = provider.embed("unknownword");
+        assertNotEquals(0f, unknown[0] * unknown[0] + unknown[1] * unknown[1] + unknown[2] * unknown[2]
+                + unknown[3] * unknown[3]);
+    }
+
+    @Test
+    void simdVectorMath_matchesScalar() {
+        Assumptions.assumeTrue(VectorMath.best() instanceof SimdVectorMath,
+                "jdk.incubator.vector is not enabled");
+
+        VectorMath scalar = new ScalarVectorMath();
+        VectorMath simd = VectorMath.best();
+        int length = 131; // не кратно ширине вектора, проверяем хвост
+        float[] a = new float[length + 3];
+        float[] b = new float[length + 3];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (float) Math.sin(i);
+            b[i] = (float) Math.cos(i);
+        }
+
+        assertEquals(scalar.dot(a, 1, b, 2, length), simd.dot(a, 1, b, 2, length), 1e-3f);
+
+        float[] scalarAcc = a.clone();
+        float[] simdAcc = a.clone();
+        scalar.add(scalarAcc, b, 3, length);
+        simd.add(simdAcc, b, 3, length);
+        assertArrayEquals(scalarAcc, simdAcc, 1e-6f);
+
+        scalar.normalize(scalarAcc, length);
+        simd.normalize(simdAcc, length);
+        assertArrayEquals(scalarAcc, simdAcc, 1e-5f);
+    }
+
+    private static void writeWord(ByteArrayOutputStream out, String word, float[] vector) {
+        out.writeBytes((word + " ").getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float x : vector) buffer.putFloat(x);
+        out.writeBytes(buffer.array());
+        out.write('\n');
+    }
+
+    private static void normalize(float[] v) {
+        float norm = 0;
+        for (float x : v) norm += x * x;
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < v.length; i++) v[i] /= norm;
+    }
+}
@@ -0,0 +1,148 @@
+import org.example.search.embedding.ScalarVectorMath;
+import org.example.search.embedding.VectorMath;
+import org.example.search.service.FlatVectorIndex;
+import org.example.search.service.Subtasks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void parallelChunkedScan_matchesBruteForce() throws Exception {
+        // 3000 строк: несколько расширений матрицы и шесть кусков по 500 строк
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION, VectorMath.best(), new Subtasks(executor), 500);
+        Random rnd = new Random(7);
+        float[][] vectors = new float[3_000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(rnd);
+            index.add("d" + i, vectors[i]);
+        }
+        assertEquals(3_000, index.size());
+
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomVector(rnd);
+            List<String> expected = IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> squareDistance(query, vectors[i]))
+                            .thenComparing(i -> i))
+                    .limit(10)
+                    .map(i -> "d" + i)
+                    .toList();
+            List<FlatVectorIndex.Hit> hits = index.search(query, 10);
+            assertEquals(expected, hits.stream().map(FlatVectorIndex.Hit::id).toList());
+            assertEquals(1 / (1 + squareDistance(query, vectors[Integer.parseInt(expected.get(0).substring(1))])),
+                    hits.get(0).score(), 1e-5);
+        }
+    }
+
+    @Test
+    void upsertAndDelete_hideOldRows() throws Exception {
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION, VectorMath.best(), new Subtasks(null), 16);
+        Random rnd = new Random(11);
+        float[] target = randomVector(rnd);
+        index.add("dup", target);
+        index.add("dup", target);
+        index.add("other", randomVector(rnd));
+
+        assertEquals(List.of("dup", "dup"), index.search(target, 2).stream().map(FlatVectorIndex.Hit::id).toList());
+
+        index.upsert("dup", randomVector(rnd));
+        assertEquals(2, index.search(target, 10).size(), "Both old rows of the id should be replaced");
+
+        index.delete("dup");
+        assertEquals(List.of("other"), index.search(target, 10).stream().map(FlatVectorIndex.Hit::id).toList());
+    }
+
+    @Test
+    void repeatedUpserts_compactDeletedRowsAndKeepIdChains() throws Exception {
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION, VectorMath.best(), new Subtasks(executor), 500, 20);
+        Random rnd = new Random(5);
+        float[][] current = new float[2_000][];
+        for (int i = 0; i < current.length; i++) {
+            current[i] = randomVector(rnd);
+            index.add("d" + i, current[i]);
+        }
+        index.add("d0", current[0]);
+
+        // каждый id заменяется трижды: без уплотнения матрица выросла бы до 8000 строк
+        for (int round = 0; round < 3; round++) {
+            for (int i = 1; i < current.length; i++) {
+                current[i] = randomVector(rnd);
+                index.upsert("d" + i, current[i]);
+            }
+        }
+        assertTrue(index.size() < 2 * current.length, "Deleted rows should be reclaimed, size " + index.size());
+        assertTrue(index.deletedRows() * 100.0 <= index.size() * 20 || index.deletedRows() < 1_024);
+
+        for (int q = 0; q < 10; q++) {
+            float[] query = randomVector(rnd);
+            List<String> expected = IntStream.range(0, current.length).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> squareDistance(query, current[i]))
+                            .thenComparing(i -> i))
+                    .limit(5)
+                    .map(i -> "d" + i)
+                    .filter(id -> !id.equals("d0"))
+                    .toList();
+            List<String> hits = index.search(query, 6).stream().map(FlatVectorIndex.Hit::id)
+                    .filter(id -> !id.equals("d0"))
+                    .limit(expected.size())
+                    .toList();
+            assertEquals(expected, hits);
+        }
+
+        // обе строки d0, пережившие уплотнение, по-прежнему связаны с id
+        index.delete("d0");
+        assertTrue(index.search(current[0], 10).stream().noneMatch(hit -> hit.id().equals("d0")));
+    }
+
+    @Test
+    void squareDistance_readsOffHeapRowsLikeScalar() {
+        Random rnd = new Random(3);
+        float[] q = randomVector(rnd);
+        float[] row = randomVector(rnd);
+        ByteBuffer data = ByteBuffer.allocateDirect(2 * DIMENSION * Float.BYTES).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < DIMENSION; i++) {
+            data.putFloat((DIMENSION + i) * Float.BYTES, row[i]);
+        }
+        int offset = DIMENSION * Float.BYTES;
+
+        assertEquals(squareDistance(q, row), new ScalarVectorMath().squareDistance(q, data, offset, DIMENSION), 1e-5);
+        assertEquals(squareDistance(q, row), VectorMath.best().squareDistance(q, data, offset, DIMENSION), 1e-5);
+    }
+
+    private static float[] randomVector(Random rnd) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = (float) rnd.nextGaussian();
+        }
+        return v;
+    }
+
+    private static double squareDistance(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double d = a[i] - b[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+}
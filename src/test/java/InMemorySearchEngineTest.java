@@ -0,0 +1,134 @@
+import org.example.search.SearchMethod;
+import org.example.search.SearchRequest;
+import org.example.search.engine.EngineSnapshot;
+import org.example.search.engine.InMemorySearchEngine;
+import org.example.search.engine.LuceneSearchEngine;
+import org.example.search.engine.SearchEngine;
+import org.example.search.model.IndexedDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemorySearchEngineTest {
+
+    private InMemorySearchEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new InMemorySearchEngine();
+    }
+
+    @Test
+    void addSingleDocument_andSearchByBodyToken() {
+        engine.addDocument(new IndexedDocument("1", "My first document", "This is a test body with Lucene token"));
+
+        List<SearchEngine.SearchResultItem> results = engine.search("lucene", 10);
+
+        assertEquals(1, results.size());
+        assertEquals("1", results.get(0).id());
+        assertEquals("My first document", results.get(0).title());
+        assertTrue(results.get(0).score() > 0.0f);
+    }
+
+    @Test
+    void searchReturnsMostRelevantFirst_andRespectsLimit() {
+        engine.addDocument(new IndexedDocument("1", "Doc 1", "apple banana"));
+        engine.addDocument(new IndexedDocument("2", "Doc 2", "apple apple banana"));
+        engine.addDocument(new IndexedDocument("3", "Doc 3", "banana only"));
+
+        assertEquals("2", engine.search("apple", 10).get(0).id());
+        assertEquals(2, engine.search("banana", 2).size());
+        assertTrue(engine.search("nonexistentterm123", 10).isEmpty());
+    }
+
+    @Test
+    void repeatedQueries_onOneThread_doNotLeakScoresBetweenQueries() {
+        for (int i = 0; i < 100; i++) {
+            engine.addDocument(new IndexedDocument(String.valueOf(i), "Doc " + i,
+                    (i % 2 == 0 ? "even " : "odd ") + "shared".repeat(i % 3 == 0 ? 1 : 0)));
+        }
+        List<SearchEngine.SearchResultItem> shared = engine.search("shared", 100);
+
+        // накопители потока переиспользуются: прошлый запрос не должен добавлять документы или очки
+        engine.search("even odd shared", 100);
+        assertEquals(shared, engine.search("shared", 100));
+        assertEquals(34, shared.size());
+        assertEquals(50, engine.search("odd", 100).size());
+    }
+
+    @Test
+    void segmentMerges_keepPostingsAndRankingConsistent() throws Exception {
+        // 1000 документов проходят через много слияний сегментов разного размера
+        try (LuceneSearchEngine lucene = new LuceneSearchEngine()) {
+            for (int i = 0; i < 1_000; i++) {
+                String body = "common " + "rare".repeat(i % 7 == 0 ? 1 : 0) + " word" + (i % 10)
+                        + " filler".repeat(i % 5);
+                IndexedDocument doc = new IndexedDocument(String.valueOf(i), "Doc " + i, body);
+                engine.addDocument(doc);
+                lucene.addDocument(doc);
+            }
+
+            assertEquals(1_000, engine.search("common", 2_000).size());
+            assertEquals(143, engine.search("rare", 2_000).size());
+            assertEquals(100, engine.search("word3", 2_000).size());
+
+            List<SearchEngine.SearchResultItem> ours = engine.search("rare word3", 5);
+            List<SearchEngine.SearchResultItem> theirs = lucene.search("rare word3", 5);
+            assertEquals(theirs.size(), ours.size());
+            for (int i = 0; i < ours.size() - 1; i++) {
+                assertTrue(ours.get(i).score() >= ours.get(i + 1).score(), "Results should be sorted by score");
+            }
+            // первыми идут документы с rare и word3 одновременно (i % 70 == 63); у них равные оценки,
+            // и среди равных раньше идёт добавленный раньше
+            for (SearchEngine.SearchResultItem item : theirs) {
+                assertEquals(63, Integer.parseInt(item.id()) % 70);
+            }
+            assertEquals(List.of("63", "133", "203", "273", "343"), ours.stream().map(SearchEngine.SearchResultItem::id).toList());
+        }
+    }
+
+    @Test
+    void nonAsciiTerms_matchLuceneTokenization() throws Exception {
+        try (LuceneSearchEngine lucene = new LuceneSearchEngine()) {
+            String[] bodies = {"Привет, мир", "café au lait", "Naïve résumé café", "мир_труд май", "Straße 42"};
+            for (int i = 0; i < bodies.length; i++) {
+                IndexedDocument doc = new IndexedDocument(String.valueOf(i), "Doc " + i, bodies[i]);
+                engine.addDocument(doc);
+                lucene.addDocument(doc);
+            }
+
+            for (String query : new String[]{"привет", "ПРИВЕТ", "мир", "café", "caf", "résumé", "straße", "42"}) {
+                assertEquals(ids(lucene.search(query, 10)), ids(engine.search(query, 10)), query);
+            }
+            assertEquals(Set.of("1", "2"), ids(engine.search("café", 10)));
+            assertEquals(Set.of("0"), ids(engine.search("ПРИВЕТ", 10)));
+            assertTrue(engine.search("caf", 10).isEmpty());
+        }
+    }
+
+    private static Set<String> ids(List<SearchEngine.SearchResultItem> items) {
+        return items.stream().map(SearchEngine.SearchResultItem::id).collect(Collectors.toSet());
+    }
+
+    @Test
+    void snapshot_isUnaffectedByLaterAdds() throws Exception {
+        engine.addDocument(new IndexedDocument("1", "First", "snapshottoken"));
+        SearchRequest request = SearchRequest.newBuilder()
+                .setQuery("snapshottoken")
+                .setMethod(SearchMethod.TEXT)
+                .build();
+
+        try (EngineSnapshot snapshot = engine.snapshot()) {
+            engine.addDocument(new IndexedDocument("2", "Second", "snapshottoken"));
+
+            assertEquals(1, snapshot.search(request, 10).size());
+            assertEquals(2, engine.search("snapshottoken", 10).size());
+            assertTrue(engine.snapshot().version() > snapshot.version());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.example.search.service.IngestOperation;
+import org.example.search.service.IngestPipeline;
+import org.example.search.service.SearchServiceConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestPipelineTest {
+
+    private static final SearchServiceConfig CONFIG = SearchServiceConfig.builder().maxBatchDelayMs(0).build();
+
+    @Test
+    void failedOperation_isCountedAndDoesNotDropTheRestOfTheBatch() throws Exception {
+        IndexWriter writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig());
+        List<String> applied = new CopyOnWriteArrayList<>();
+        IngestPipeline pipeline = new IngestPipeline(writer, CONFIG, "ingest-test", op -> applied.add(op.id()));
+
+        assertTrue(pipeline.submit(IngestOperation.add("a", doc("a")), 1, 0));
+        // терм длиннее 32766 байт Lucene отвергает, но writer остаётся рабочим
+        assertTrue(pipeline.submit(IngestOperation.add("huge", doc("x".repeat(40_000))), 1, 0));
+        assertTrue(pipeline.submit(IngestOperation.add("b", doc("b")), 1, 0));
+        pipeline.close();
+
+        assertEquals(2, pipeline.indexedDocuments());
+        assertEquals(1, pipeline.droppedOperations());
+        assertEquals(2, writer.getDocStats().numDocs);
+        // отвергнутая Lucene операция не доходит до обработчика применённых операций
+        assertEquals(List.of("a", "b"), applied);
+        writer.close();
+    }
+
+    @Test
+    void tragicWriterFailure_rejectsFurtherOperations() throws Exception {
+        FailingDirectory directory = new FailingDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig());
+        IngestPipeline pipeline = new IngestPipeline(writer, CONFIG);
+
+        directory.failing = true;
+        assertTrue(pipeline.submit(IngestOperation.add("a", doc("a")), 1, 0));
+        assertTrue(pipeline.submit(IngestOperation.add("b", doc("b")), 1, 0));
+        pipeline.close();
+
+        assertNotNull(writer.getTragicException());
+        assertEquals(0, pipeline.indexedDocuments());
+        assertEquals(2, pipeline.droppedOperations());
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.submit(IngestOperation.add("c", doc("c")), 1, 0));
+    }
+
+    private static Document doc(String id) {
+        Document doc = new Document();
+        doc.add(new StringField("id", id, Field.Store.YES));
+        return doc;
+    }
+
+    private static class FailingDirectory extends FilterDirectory {
+        volatile boolean failing;
+
+        FailingDirectory() {
+            super(new ByteBuffersDirectory());
+        }
+
+        @Override
+        public IndexOutput createOutput(String name, IOContext context) throws IOException {
+            if (failing) throw new IOException("disk failure");
+            return super.createOutput(name, context);
+        }
+
+        @Override
+        public IndexOutput createTempOutput(String prefix, String suffix, IOContext context) throws IOException {
+            if (failing) throw new IOException("disk failure");
+            return super.createTempOutput(prefix, suffix, context);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import org.example.search.service.IngestQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestQueueTest {
+
+    @Test
+    void offer_rejectsWhenItemLimitReached() throws Exception {
+        IngestQueue<String> queue = new IngestQueue<>(2, 1_000);
+
+        assertTrue(queue.offer("a", 10, 0, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer("b", 10, 0, TimeUnit.MILLISECONDS));
+        assertFalse(queue.offer("c", 10, 10, TimeUnit.MILLISECONDS));
+
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.rejectedCount());
+    }
+
+    @Test
+    void offer_rejectsWhenByteLimitReached() throws Exception {
+        IngestQueue<String> queue = new IngestQueue<>(100, 100);
+
+        assertTrue(queue.offer("a", 60, 0, TimeUnit.MILLISECONDS));
+        assertFalse(queue.offer("b", 60, 0, TimeUnit.MILLISECONDS));
+        assertEquals(60, queue.bytes());
+    }
+
+    @Test
+    void offer_acceptsOversizedItemIntoEmptyQueue() throws Exception {
+        IngestQueue<String> queue = new IngestQueue<>(100, 100);
+
+        assertTrue(queue.offer("huge", 500, 0, TimeUnit.MILLISECONDS));
+        assertEquals(500, queue.bytes());
+    }
+
+    @Test
+    void blockedProducer_proceedsAfterConsumerFreesSpace() throws Exception {
+        IngestQueue<String> queue = new IngestQueue<>(1, 1_000);
+        assertTrue(queue.offer("a", 10, 0, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<Boolean> producer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.offer("b", 10, 5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(50);
+        assertFalse(producer.isDone(), "Producer should wait while the queue is full");
+
+        assertEquals("a", queue.poll().item());
+        assertTrue(producer.get(5, TimeUnit.SECONDS));
+        assertEquals("b", queue.poll(1, TimeUnit.SECONDS).item());
+        assertTrue(queue.maxEnqueueWaitNanos() > 0);
+        assertEquals(0, queue.bytes());
+    }
+}
@@ -3,7 +3,9 @@ import org.example.search.engine.SearchEngine;
 import org.example.search.model.IndexedDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -120,4 +122,17 @@ class LuceneSearchEngineTest {
         List<SearchEngine.SearchResultItem> secondSearch = engine.search("body", 10);
         assertEquals(3, secondSearch.size());
     }
+
+    @Test
+    void onDiskIndexSurvivesReopen(@TempDir Path indexPath) throws Exception {
+        try (LuceneSearchEngine first = new LuceneSearchEngine(indexPath)) {
+            first.addDocument(new IndexedDocument("1", "Persisted", "durable body"));
+        }
+
+        try (LuceneSearchEngine reopened = new LuceneSearchEngine(indexPath)) {
+            List<SearchEngine.SearchResultItem> results = reopened.search("durable", 10);
+            assertEquals(1, results.size());
+            assertEquals("Persisted", results.get(0).title());
+        }
+    }
 }
@@ -0,0 +1,108 @@
+import org.example.search.SearchMethod;
+import org.example.search.SearchRequest;
+import org.example.search.engine.EngineSnapshot;
+import org.example.search.engine.SearchEngine;
+import org.example.search.engine.SearchHits;
+import org.example.search.model.IndexedDocument;
+import org.example.search.service.NrtSearchEngine;
+import org.example.search.service.SearchServiceConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NrtSearchEngineTest {
+
+    private NrtSearchEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new NrtSearchEngine(SearchServiceConfig.defaults(), null);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        engine.close();
+    }
+
+    @Test
+    void concurrentAdds_becomeVisibleAfterRefresh() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                tasks.add(writers.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        engine.addDocument(new IndexedDocument(thread + "-" + i, "Doc " + i, "concurrenttoken " + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            writers.shutdown();
+        }
+
+        List<SearchEngine.SearchResultItem> results = SearchTestServer.awaitHits(
+                () -> engine.search("concurrenttoken", 1_000), r -> r.size() >= 200);
+        assertEquals(200, results.size());
+        assertTrue(results.get(0).score() > 0.0f);
+    }
+
+    @Test
+    void snapshot_keepsResultsStableWhileIndexChanges() throws Exception {
+        engine.addDocument(new IndexedDocument("1", "First", "snapshottoken"));
+        SearchTestServer.awaitHits(() -> engine.search("snapshottoken", 10), r -> !r.isEmpty());
+
+        SearchRequest request = SearchRequest.newBuilder()
+                .setQuery("snapshottoken")
+                .setMethod(SearchMethod.TEXT)
+                .build();
+        try (EngineSnapshot snapshot = engine.snapshot()) {
+            engine.addDocument(new IndexedDocument("2", "Second", "snapshottoken"));
+            SearchTestServer.awaitHits(() -> engine.search("snapshottoken", 10), r -> r.size() >= 2);
+            SearchHits hits = snapshot.search(request, 10);
+            assertEquals(1, hits.size(), "Snapshot should not see documents added after it was taken");
+            assertEquals("1", hits.result(0).getId());
+        }
+    }
+
+    @Test
+    void flatVectorSearch_fillsPageWhenNearestRowsAreNotInSnapshot() throws Exception {
+        try (NrtSearchEngine flat = new NrtSearchEngine(SearchServiceConfig.builder().flatVectorIndex(true).build(), null)) {
+            for (int i = 0; i < 10; i++) {
+                flat.addDocument(new IndexedDocument("far-" + i, "Far " + i, "flatpagefiller " + i));
+            }
+            SearchTestServer.awaitHits(() -> flat.search("flatpagefiller", 100), r -> r.size() >= 10);
+
+            SearchRequest request = SearchRequest.newBuilder()
+                    .setQuery("Near flatpagequery")
+                    .setMethod(SearchMethod.FLAT_VECTOR)
+                    .build();
+            try (EngineSnapshot snapshot = flat.snapshot()) {
+                // ближайшие строки матрицы принадлежат документам, которых в снимке нет
+                for (int i = 0; i < 10; i++) {
+                    flat.addDocument(new IndexedDocument("near-" + i, "Near", "flatpagequery"));
+                }
+                SearchTestServer.awaitHits(() -> flat.search("flatpagequery", 100), r -> r.size() >= 10);
+
+                SearchHits hits = snapshot.search(request, 5);
+                assertEquals(5, hits.size());
+                for (int i = 0; i < hits.size(); i++) {
+                    assertTrue(hits.result(i).getId().startsWith("far-"), hits.result(i).getId());
+                }
+                assertNotNull(hits.nextCursor(), "A full page should offer the next one");
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import org.example.search.service.QueryCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    @Test
+    void get_countsHitsAndMisses() {
+        QueryCache<String, Integer> cache = new QueryCache<>("test", 100);
+        cache.put("a", 1);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void invalidEntry_isTreatedAsMiss() {
+        QueryCache<String, Long> cache = new QueryCache<>("generations", 100);
+        cache.put("q", 1L);
+
+        assertNull(cache.get("q", generation -> generation == 2L));
+        assertEquals(1L, cache.get("q", generation -> generation == 1L));
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void cacheIsBounded() {
+        QueryCache<Integer, Integer> cache = new QueryCache<>("bounded", 32);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.size() <= 32, "Cache should not grow beyond its capacity");
+        assertTrue(cache.evictions() >= 1_000 - 32);
+    }
+}
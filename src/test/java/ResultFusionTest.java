@@ -0,0 +1,36 @@
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.example.search.service.ResultFusion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultFusionTest {
+
+    private static TopDocs docs(int... ids) {
+        ScoreDoc[] scoreDocs = new ScoreDoc[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            scoreDocs[i] = new ScoreDoc(ids[i], ids.length - i);
+        }
+        return new TopDocs(new TotalHits(ids.length, TotalHits.Relation.EQUAL_TO), scoreDocs);
+    }
+
+    @Test
+    void reciprocalRank_prefersDocumentsFoundByBothLists() {
+        TopDocs fused = ResultFusion.reciprocalRank(3, docs(1, 2, 3), docs(4, 3, 5));
+
+        assertEquals(3, fused.scoreDocs.length);
+        assertEquals(3, fused.scoreDocs[0].doc);
+        assertEquals(5, fused.totalHits.value);
+    }
+
+    @Test
+    void weighted_followsVectorWeight() {
+        TopDocs text = docs(1, 2);
+        TopDocs vector = docs(2, 1);
+
+        assertEquals(1, ResultFusion.weighted(text, vector, 0.2f, 2).scoreDocs[0].doc);
+        assertEquals(2, ResultFusion.weighted(text, vector, 0.8f, 2).scoreDocs[0].doc);
+    }
+}
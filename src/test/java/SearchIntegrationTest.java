@@ -1,29 +1,43 @@
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import org.example.search.*;
 import org.example.search.client.SearchClient;
+import org.example.search.engine.LuceneSearchEngine;
+import org.example.search.service.SearchExecution;
+import org.example.search.service.SearchServiceConfig;
 import org.example.search.service.SearchServiceImpl;
+import org.example.search.service.VectorEncoding;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class SearchIntegrationTest {
 
-    private SearchServiceImpl service;
+    private SearchTestServer server;
     private SearchClient client;
 
     @BeforeAll
-    void setup() {
-        // Запуск сервера
-        service = new SearchServiceImpl();
-        client = new SearchClient("localhost", 50051);
+    void setup() throws Exception {
+        server = SearchTestServer.start(new SearchServiceImpl());
+        client = server.client();
     }
 
     @AfterAll
     void tearDown() throws Exception {
-        client.shutdown();
+        if (server != null) server.close();
     }
 
     @Test
@@ -86,4 +100,193 @@ class SearchIntegrationTest {
         List<SearchResult> vectorResults = client.search("completely unrelated query", SearchMethod.VECTOR);
         assertNotNull(vectorResults);
     }
+
+    @Test
+    void persistentIndex_survivesRestart(@TempDir Path indexPath) throws Exception {
+        SearchServiceConfig config = SearchServiceConfig.builder()
+                .indexPath(indexPath)
+                .flatVectorIndex(true)
+                .build();
+
+        try (SearchTestServer first = SearchTestServer.start(new SearchServiceImpl(config))) {
+            assertTrue(first.client().addDocument("p-1", "Persistent", "survivingtoken"));
+        }
+
+        try (SearchTestServer second = SearchTestServer.start(new SearchServiceImpl(config))) {
+            List<SearchResult> results = second.client().search("survivingtoken", SearchMethod.TEXT);
+            assertEquals(1, results.size(), "Committed document should be recovered after restart");
+            assertEquals("p-1", results.get(0).getId());
+
+            List<SearchResult> flat = second.client().search("Persistent survivingtoken", SearchMethod.FLAT_VECTOR);
+            assertEquals("p-1", flat.get(0).getId(), "Flat vector index should be rebuilt on restart");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchExecution.class)
+    void search_worksInEveryExecutionModel(SearchExecution execution) throws Exception {
+        SearchServiceConfig config = SearchServiceConfig.builder()
+                .searchExecution(execution)
+                .searchThreads(2)
+                .build();
+
+        try (SearchTestServer modeServer = SearchTestServer.start(new SearchServiceImpl(config))) {
+            SearchClient modeClient = modeServer.client();
+            modeClient.addDocument("m-1", "Mode", "executionmodel");
+            List<SearchResult> results = SearchTestServer.awaitHits(
+                    () -> modeClient.search("executionmodel", SearchMethod.TEXT), r -> !r.isEmpty());
+            assertEquals(1, results.size(), "Search should work with " + execution);
+            assertFalse(modeClient.search("executionmodel", SearchMethod.VECTOR).isEmpty());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(VectorEncoding.class)
+    void vectorSearch_honorsEncodingAndPerRequestK(VectorEncoding encoding) throws Exception {
+        SearchServiceConfig config = SearchServiceConfig.builder()
+                .vectorEncoding(encoding)
+                .hnswMaxConn(8)
+                .hnswBeamWidth(50)
+                .flatVectorIndex(true)
+                .build();
+
+        try (SearchTestServer vectorServer = SearchTestServer.start(new SearchServiceImpl(config))) {
+            SearchClient vectorClient = vectorServer.client();
+            for (int i = 0; i < 50; i++) {
+                vectorClient.addDocument("v-" + i, "Vector " + i, "encoded vector document " + i);
+            }
+            vectorClient.addDocument("v-exact", "Quantized", "quantizedtoken");
+            SearchRequest request = SearchRequest.newBuilder()
+                    .setQuery("Quantized quantizedtoken")
+                    .setMethod(SearchMethod.VECTOR)
+                    .setLimit(3)
+                    .setNumCandidates(40)
+                    .build();
+
+            List<SearchResult> results = SearchTestServer.awaitHits(
+                    () -> vectorClient.search(request), r -> containsId(r, "v-exact"));
+            assertEquals(3, results.size(), "Per-request k should limit " + encoding + " results");
+            assertEquals("v-exact", results.get(0).getId());
+
+            // точный перебор не зависит от кодировки векторов в HNSW
+            List<SearchResult> flat = vectorClient.search(request.toBuilder()
+                    .setMethod(SearchMethod.FLAT_VECTOR)
+                    .build());
+            assertEquals(3, flat.size());
+            assertEquals("v-exact", flat.get(0).getId());
+        }
+    }
+
+    @Test
+    void shardedIndex_pagesThroughAllShardsWithoutDuplicates() throws Exception {
+        SearchServiceConfig config = SearchServiceConfig.builder()
+                .shards(3)
+                .build();
+
+        try (SearchTestServer shardedServer = SearchTestServer.start(new SearchServiceImpl(config))) {
+            SearchClient shardedClient = shardedServer.client();
+            for (int i = 0; i < 30; i++) {
+                shardedClient.addDocument("s-" + i, "Shard " + i, "shardedtoken number " + i);
+            }
+            SearchRequest request = SearchRequest.newBuilder()
+                    .setQuery("shardedtoken")
+                    .setMethod(SearchMethod.TEXT)
+                    .setLimit(30)
+                    .build();
+            List<SearchResult> all = SearchTestServer.awaitHits(() -> shardedClient.search(request), r -> r.size() >= 30);
+            assertEquals(30, all.size(), "Documents from every shard should be found");
+
+            // одинаковые оценки во всех шардах: курсор должен учитывать номер шарда
+            Set<String> paged = new HashSet<>();
+            SearchRequest page = request.toBuilder().setLimit(7).build();
+            for (int i = 0; i < 10; i++) {
+                SearchResponse response = shardedClient.searchPage(page);
+                response.getResultsList().forEach(r -> assertTrue(paged.add(r.getId()), "Duplicate " + r.getId()));
+                if (!response.hasNextCursor()) break;
+                page = page.toBuilder().setSearchAfter(response.getNextCursor()).build();
+            }
+            assertEquals(30, paged.size());
+
+            assertFalse(shardedClient.search("shardedtoken", SearchMethod.VECTOR).isEmpty());
+            assertFalse(shardedClient.search("shardedtoken", SearchMethod.HYBRID).isEmpty());
+            assertEquals(30, shardedClient.getStats().getIngest().getIndexedDocuments());
+        }
+    }
+
+    @Test
+    void serviceOverPluggableEngine_servesTextAndRejectsUnsupportedMethods() throws Exception {
+        try (SearchTestServer luceneServer = SearchTestServer.start(new SearchServiceImpl(new LuceneSearchEngine(),
+                SearchServiceConfig.defaults()))) {
+            SearchClient luceneClient = luceneServer.client();
+            for (int i = 0; i < 5; i++) {
+                assertTrue(luceneClient.addDocument("l-" + i, "Lucene " + i, "pluggabletoken number " + i));
+            }
+            SearchRequest request = SearchRequest.newBuilder()
+                    .setQuery("pluggabletoken")
+                    .setMethod(SearchMethod.TEXT)
+                    .setLimit(2)
+                    .build();
+            Set<String> paged = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                SearchResponse response = luceneClient.searchPage(request);
+                response.getResultsList().forEach(r -> assertTrue(paged.add(r.getId()), "Duplicate " + r.getId()));
+                if (!response.hasNextCursor()) break;
+                request = request.toBuilder().setSearchAfter(response.getNextCursor()).build();
+            }
+            assertEquals(5, paged.size());
+
+            StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                    () -> luceneClient.search("pluggabletoken", SearchMethod.VECTOR));
+            assertEquals(Status.Code.UNIMPLEMENTED, e.getStatus().getCode());
+        }
+    }
+
+    @Test
+    void metadataFilter_restrictsTextVectorAndHybridInsideTheIndex() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            List<String> tags = new ArrayList<>();
+            if (i % 2 == 0) tags.add("even");
+            if (i % 3 == 0) tags.add("three");
+            assertTrue(client.addDocument("f-" + i, "Filtered " + i, "filtertoken document " + i,
+                    tags, Map.of("price", (double) i)));
+        }
+        SearchRequest text = SearchRequest.newBuilder()
+                .setQuery("filtertoken")
+                .setMethod(SearchMethod.TEXT)
+                .setLimit(20)
+                .setFilter(SearchFilter.newBuilder()
+                        .addAllTags("even")
+                        .addRanges(NumericRange.newBuilder().setField("price").setMin(4).setMax(12)))
+                .build();
+        List<SearchResult> results = SearchTestServer.awaitHits(() -> client.search(text), r -> r.size() >= 5);
+        assertEquals(Set.of("f-4", "f-6", "f-8", "f-10", "f-12"),
+                results.stream().map(SearchResult::getId).collect(Collectors.toSet()));
+
+        SearchFilter three = SearchFilter.newBuilder().addAnyTags("three").build();
+        // фильтр применяется до отбора kNN-кандидатов, поэтому страница заполнена целиком
+        List<SearchResult> vector = client.search(SearchRequest.newBuilder()
+                .setQuery("filtertoken document")
+                .setMethod(SearchMethod.VECTOR)
+                .setLimit(5)
+                .setFilter(three)
+                .build());
+        assertEquals(5, vector.size());
+        vector.forEach(r -> assertEquals(0, Integer.parseInt(r.getId().substring(2)) % 3, r.getId()));
+
+        List<SearchResult> hybrid = client.search(SearchRequest.newBuilder()
+                .setQuery("filtertoken")
+                .setMethod(SearchMethod.HYBRID)
+                .setFilter(three.toBuilder().addRanges(NumericRange.newBuilder().setField("price").setMax(9)))
+                .build());
+        assertEquals(Set.of("f-0", "f-3", "f-6", "f-9"),
+                hybrid.stream().map(SearchResult::getId).collect(Collectors.toSet()));
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> client.search(
+                text.toBuilder().setMethod(SearchMethod.FLAT_VECTOR).build()));
+        assertEquals(Status.Code.UNIMPLEMENTED, e.getStatus().getCode());
+    }
+
+    private static boolean containsId(List<SearchResult> results, String id) {
+        return results.stream().anyMatch(r -> r.getId().equals(id));
+    }
 }
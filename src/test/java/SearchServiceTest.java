@@ -1,33 +1,31 @@
-import io.grpc.Server;
-import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import org.example.search.*;
 import org.example.search.client.SearchClient;
+import org.example.search.engine.SearchEngine;
+import org.example.search.model.IndexedDocument;
+import org.example.search.service.SearchServiceConfig;
 import org.example.search.service.SearchServiceImpl;
 import org.junit.jupiter.api.*;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class SearchServiceTest {
 
-    private SearchServiceImpl service;
+    private SearchTestServer server;
     private SearchClient client;
-    private Server server;
 
     @BeforeAll
-    void setupServer() throws IOException, InterruptedException {
-        service = new SearchServiceImpl();
-
-        server = NettyServerBuilder.forPort(50052)
-                .addService(service)
-                .build()
-                .start();
-
-        client = new SearchClient("localhost", 50052);
+    void setupServer() throws Exception {
+        server = SearchTestServer.start(new SearchServiceImpl());
+        client = server.client();
         for (int i = 1; i <= 10_000; i++) {
             String id = String.valueOf(i);
             String title = "Document " + i;
@@ -39,9 +37,8 @@ class SearchServiceTest {
     }
 
     @AfterAll
-    void tearDown() throws InterruptedException {
-        if (client != null) client.shutdown();
-        if (server != null) server.shutdownNow();
+    void tearDown() throws Exception {
+        if (server != null) server.close();
     }
 
     @Test
@@ -50,6 +47,328 @@ class SearchServiceTest {
         assertTrue(added, "Document should be added successfully");
     }
 
+    @Test
+    void bulkAddDocuments_countsAcceptedDocuments() {
+        List<AddDocumentRequest> documents = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            documents.add(AddDocumentRequest.newBuilder()
+                    .setId("bulk-" + i)
+                    .setTitle("Bulk " + i)
+                    .setContent("Bulk loaded document " + i)
+                    .build());
+        }
+
+        BulkAddResponse response = client.bulkAddDocuments(documents.iterator());
+        assertEquals(500, response.getAccepted(), "All streamed documents should be accepted");
+        assertEquals(0, response.getRejected());
+    }
+
+    @Test
+    void bulkAddDocuments_rejectsOnlyQueueFullAndFailsOnEngineErrors() throws Exception {
+        // очередь "полна" для full-*, а broken имитирует сломанный IndexWriter
+        SearchEngine engine = new SearchEngine() {
+            @Override
+            public void addDocument(IndexedDocument doc) { }
+
+            @Override
+            public boolean add(IndexedDocument doc, long timeoutMs) {
+                if (doc.id().equals("broken")) throw new IllegalStateException("IndexWriter is closed");
+                return !doc.id().startsWith("full-");
+            }
+
+            @Override
+            public List<SearchEngine.SearchResultItem> search(String query, int limit) {
+                return List.of();
+            }
+        };
+        try (SearchTestServer stub = SearchTestServer.start(new SearchServiceImpl(engine, SearchServiceConfig.defaults()))) {
+            List<AddDocumentRequest> documents = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                documents.add(bulkDocument((i % 4 == 0 ? "full-" : "ok-") + i));
+            }
+            BulkAddResponse response = stub.client().bulkAddDocuments(documents.iterator());
+            assertEquals(75, response.getAccepted());
+            assertEquals(25, response.getRejected(), "Only queue-full documents count as rejected");
+
+            documents.add(bulkDocument("broken"));
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stub.client().bulkAddDocuments(documents.iterator()));
+            assertEquals(Status.Code.FAILED_PRECONDITION, Status.fromThrowable(e).getCode());
+        }
+    }
+
+    private static AddDocumentRequest bulkDocument(String id) {
+        return AddDocumentRequest.newBuilder().setId(id).setTitle("Bulk " + id).setContent("Bulk " + id).build();
+    }
+
+    @Test
+    void addedDocument_becomesSearchableBeforeCommit() throws Exception {
+        client.addDocument("nrt-1", "Near real time", "freshlyindexedtoken");
+
+        List<SearchResult> results = SearchTestServer.awaitHits(
+                () -> client.search("freshlyindexedtoken", SearchMethod.TEXT), r -> !r.isEmpty());
+        assertEquals(1, results.size(), "Document should be visible after a reader refresh");
+        assertEquals("nrt-1", results.get(0).getId());
+    }
+
+    @Test
+    void upsertReplacesDocument_andDeleteRemovesIt() throws Exception {
+        assertTrue(client.upsertDocument("up-1", "First version", "upserttoken original"));
+        assertTrue(client.upsertDocument("up-1", "Second version", "upserttoken replaced"));
+
+        List<SearchResult> results = SearchTestServer.awaitHits(
+                () -> client.search("upserttoken", SearchMethod.TEXT),
+                r -> r.size() == 1 && r.get(0).getTitle().equals("Second version"));
+        assertEquals(1, results.size(), "Upsert should not leave duplicates");
+        assertEquals("Second version", results.get(0).getTitle());
+
+        assertTrue(client.deleteDocument("up-1"));
+        results = SearchTestServer.awaitHits(() -> client.search("upserttoken", SearchMethod.TEXT), List::isEmpty);
+        assertTrue(results.isEmpty(), "Deleted document should disappear from results");
+        assertTrue(client.getStats().getIngest().getDeleteOperations() >= 1);
+    }
+
+    @Test
+    void getStats_reportsIngestQueue() {
+        IngestStats stats = client.getStats().getIngest();
+        assertTrue(stats.getMaxQueuedDocuments() > 0);
+        assertTrue(stats.getIndexedDocuments() > 0, "Preloaded documents should be indexed");
+        assertTrue(stats.getQueuedDocuments() <= stats.getMaxQueuedDocuments());
+    }
+
+    @Test
+    void textSearch_analyzesMultiWordQuery_andBoostsTitle() throws Exception {
+        client.addDocument("boost-content", "Plain title", "the rankingterm appears in the body");
+        client.addDocument("boost-title", "Rankingterm in title", "body without it");
+
+        List<SearchResult> results = SearchTestServer.awaitHits(
+                () -> client.search("RankingTerm unrelatedword", SearchMethod.TEXT), r -> r.size() >= 2);
+        assertEquals(2, results.size(), "Both documents should match the analyzed query");
+        assertEquals("boost-title", results.get(0).getId(), "Title match should rank first");
+    }
+
+    @Test
+    void repeatedQuery_isServedFromResultCache() {
+        long hitsBefore = resultCacheHits();
+        // reopen индекса между запросами законно сбрасывает кэш, поэтому даём несколько попыток
+        for (int attempt = 0; attempt < 5 && resultCacheHits() == hitsBefore; attempt++) {
+            client.search("document number", SearchMethod.VECTOR);
+            client.search("document number", SearchMethod.VECTOR);
+        }
+        assertTrue(resultCacheHits() > hitsBefore, "Identical query should hit the result cache");
+    }
+
+    private long resultCacheHits() {
+        return client.getStats().getCachesList().stream()
+                .filter(c -> c.getName().equals("results"))
+                .mapToLong(CacheStats::getHits)
+                .sum();
+    }
+
+    @Test
+    void highlightedSnippet_marksQueryTerms_onlyWhenRequested() throws Exception {
+        String content = "filler ".repeat(40) + "the Highlightme token sits deep inside the body";
+        client.addDocument("hl-1", "Highlight", content);
+
+        SearchRequest plain = SearchRequest.newBuilder()
+                .setQuery("highlightme")
+                .setMethod(SearchMethod.TEXT)
+                .build();
+        List<SearchResult> results = SearchTestServer.awaitHits(() -> client.search(plain), r -> !r.isEmpty());
+        assertEquals(1, results.size());
+        assertEquals(content.substring(0, 100), results.get(0).getSnippet());
+
+        List<SearchResult> highlighted = client.search(plain.toBuilder().setHighlight(true).build());
+        assertTrue(highlighted.get(0).getSnippet().contains("<b>Highlightme</b>"),
+                "Snippet should highlight the matched term: " + highlighted.get(0).getSnippet());
+    }
+
+    @Test
+    void hybridSearch_findsTextOnlyMatch_withBothFusions() throws Exception {
+        client.addDocument("hybrid-1", "Hybrid", "hybridonlytoken appears here");
+
+        SearchRequest rrf = SearchRequest.newBuilder()
+                .setQuery("hybridonlytoken")
+                .setMethod(SearchMethod.HYBRID)
+                .build();
+        // векторная часть возвращает результаты и до reopen, поэтому ждём сам документ
+        List<SearchResult> results = SearchTestServer.awaitHits(() -> client.search(rrf),
+                r -> r.stream().anyMatch(hit -> hit.getId().equals("hybrid-1")));
+        assertTrue(results.stream().anyMatch(r -> r.getId().equals("hybrid-1")),
+                "Text-only match should survive reciprocal rank fusion");
+        assertTrue(results.size() <= 10);
+
+        List<SearchResult> weighted = client.search(rrf.toBuilder()
+                .setFusion(HybridFusion.WEIGHTED)
+                .setVectorWeight(0.3f)
+                .build());
+        assertEquals("hybrid-1", weighted.get(0).getId());
+
+        // нулевой вес — только BM25, а не значение по умолчанию
+        List<SearchResult> textOnly = client.search(rrf.toBuilder()
+                .setFusion(HybridFusion.WEIGHTED)
+                .setVectorWeight(0)
+                .build());
+        assertEquals(List.of("hybrid-1"), textOnly.stream().map(SearchResult::getId).toList());
+    }
+
+    @Test
+    void hybridSearch_rejectsVectorWeightOutsideUnitInterval() {
+        for (float weight : new float[]{-0.1f, 1.5f, Float.NaN}) {
+            StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> client.search(
+                    SearchRequest.newBuilder()
+                            .setQuery("document")
+                            .setMethod(SearchMethod.HYBRID)
+                            .setFusion(HybridFusion.WEIGHTED)
+                            .setVectorWeight(weight)
+                            .build()));
+            assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode(), "weight " + weight);
+        }
+    }
+
+    @Test
+    void searchAfter_pagesThroughResultsWithoutOverlap() {
+        SearchRequest first = SearchRequest.newBuilder()
+                .setQuery("document")
+                .setMethod(SearchMethod.TEXT)
+                .setLimit(3)
+                .build();
+        SearchResponse page1 = client.searchPage(first);
+        assertEquals(3, page1.getResultsCount());
+        assertTrue(page1.hasNextCursor());
+
+        SearchResponse page2 = client.searchPage(first.toBuilder().setSearchAfter(page1.getNextCursor()).build());
+        assertEquals(3, page2.getResultsCount());
+        assertEquals(6, page2.getNextCursor().getOffset());
+
+        Set<String> ids = new HashSet<>();
+        page1.getResultsList().forEach(r -> ids.add(r.getId()));
+        page2.getResultsList().forEach(r -> ids.add(r.getId()));
+        assertEquals(6, ids.size(), "Pages should not overlap");
+    }
+
+    @Test
+    void searchStream_returnsSameResultsAsUnarySearch() {
+        SearchRequest request = SearchRequest.newBuilder()
+                .setQuery("document")
+                .setMethod(SearchMethod.TEXT)
+                .setLimit(200)
+                .build();
+        // между двумя вызовами может пройти reopen с новыми документами, поэтому несколько попыток
+        List<SearchResult> unary;
+        List<SearchResult> streamed;
+        int attempt = 0;
+        do {
+            unary = client.search(request);
+            streamed = new ArrayList<>();
+            client.searchStream(request).forEachRemaining(streamed::add);
+        } while (!streamed.equals(unary) && ++attempt < 5);
+
+        assertEquals(200, streamed.size());
+        assertEquals(unary, streamed);
+    }
+
+    @Test
+    void batchSearch_returnsResponsesInRequestOrder() {
+        List<SearchRequest> requests = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            requests.add(SearchRequest.newBuilder()
+                    .setQuery("Document " + i * 7)
+                    .setMethod(i % 2 == 0 ? SearchMethod.TEXT : SearchMethod.VECTOR)
+                    .setLimit(1)
+                    .build());
+        }
+
+        List<SearchResponse> responses = client.batchSearch(requests);
+
+        assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (requests.get(i).getMethod() == SearchMethod.TEXT) {
+                String number = String.valueOf((i + 1) * 7);
+                String id = responses.get(i).getResults(0).getId();
+                assertTrue(id.equals(number) || id.equals("bulk-" + number), "Unexpected hit " + id);
+            } else {
+                assertEquals(1, responses.get(i).getResultsCount());
+            }
+        }
+    }
+
+    @Test
+    void batchSearch_rejectsInvalidQuery() {
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> client.batchSearch(List.of(
+                SearchRequest.newBuilder().setQuery("document").build(),
+                SearchRequest.newBuilder().setQuery("document").setLimit(-1).build())));
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+
+    @Test
+    void fieldProjection_skipsUnrequestedFields() {
+        List<SearchResult> results = client.search(SearchRequest.newBuilder()
+                .setQuery("document")
+                .setMethod(SearchMethod.TEXT)
+                .setLimit(2)
+                .addFields(ResultField.TITLE)
+                .build());
+
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).getId().isEmpty());
+        assertFalse(results.get(0).getTitle().isEmpty());
+        assertTrue(results.get(0).getSnippet().isEmpty());
+    }
+
+    @Test
+    void search_rejectsLimitAboveMaximum() {
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> client.search(
+                SearchRequest.newBuilder().setQuery("document").setLimit(100_000).build()));
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+
+    @Test
+    void searchAfter_rejectsNegativeOrTooDeepOffset() {
+        for (SearchMethod method : new SearchMethod[]{SearchMethod.TEXT, SearchMethod.HYBRID, SearchMethod.FLAT_VECTOR}) {
+            for (int offset : new int[]{-1, Integer.MIN_VALUE, 9_995, Integer.MAX_VALUE}) {
+                SearchRequest request = SearchRequest.newBuilder()
+                        .setQuery("document")
+                        .setMethod(method)
+                        .setLimit(10)
+                        .setSearchAfter(SearchCursor.newBuilder().setOffset(offset))
+                        .build();
+                StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> client.search(request));
+                assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode(), method + " offset " + offset);
+                assertThrows(StatusRuntimeException.class, () -> client.searchStream(request).forEachRemaining(r -> {}));
+            }
+        }
+    }
+
+    @Test
+    void hybridSearch_atMaximumDepth_returnsFullPage() {
+        SearchResponse page = client.searchPage(SearchRequest.newBuilder()
+                .setQuery("document")
+                .setMethod(SearchMethod.HYBRID)
+                .setLimit(10)
+                .setSearchAfter(SearchCursor.newBuilder().setOffset(9_990))
+                .build());
+        assertEquals(10, page.getResultsCount(), "Candidates are capped at maxNumCandidates, not offset * factor");
+    }
+
+    @Test
+    void vectorSearch_rejectsNumCandidatesOutsideConfiguredCap() {
+        for (int numCandidates : new int[]{-1, SearchServiceConfig.DEFAULT_MAX_NUM_CANDIDATES + 1, 1_000_000_000}) {
+            StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> client.search(
+                    SearchRequest.newBuilder()
+                            .setQuery("document")
+                            .setMethod(SearchMethod.VECTOR)
+                            .setNumCandidates(numCandidates)
+                            .build()));
+            assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode(), "num_candidates " + numCandidates);
+        }
+        assertEquals(5, client.search(SearchRequest.newBuilder()
+                .setQuery("document")
+                .setMethod(SearchMethod.VECTOR)
+                .setNumCandidates(SearchServiceConfig.DEFAULT_MAX_NUM_CANDIDATES)
+                .build()).size());
+    }
+
     @Test
     void textSearch_likeClientApp() {
         List<SearchResult> results = client.search("test", SearchMethod.TEXT);
@@ -0,0 +1,62 @@
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.example.search.client.SearchClient;
+import org.example.search.service.SearchServiceImpl;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Сервис поиска на свободном порту с клиентом к нему; close() закрывает клиент, сервер и сам сервис.
+ */
+final class SearchTestServer implements AutoCloseable {
+
+    private static final int AWAIT_ATTEMPTS = 40;
+    private static final long AWAIT_INTERVAL_MS = 50;
+
+    private final SearchServiceImpl service;
+    private final Server server;
+    private final SearchClient client;
+
+    private SearchTestServer(SearchServiceImpl service, Server server) {
+        this.service = service;
+        this.server = server;
+        this.client = new SearchClient("localhost", server.getPort());
+    }
+
+    static SearchTestServer start(SearchServiceImpl service) throws IOException {
+        try {
+            // порт 0 — любой свободный, поэтому тестовые классы не мешают друг другу
+            return new SearchTestServer(service, NettyServerBuilder.forPort(0).addService(service).build().start());
+        } catch (IOException | RuntimeException e) {
+            service.close();
+            throw e;
+        }
+    }
+
+    SearchClient client() {
+        return client;
+    }
+
+    /**
+     * Повторяет поиск, пока результат не удовлетворит условию (документы становятся видимыми
+     * после reopen) или не выйдет время; возвращает последний результат для проверок.
+     */
+    static <T> T awaitHits(Callable<T> search, Predicate<T> done) throws Exception {
+        T result = search.call();
+        for (int attempt = 0; attempt < AWAIT_ATTEMPTS && !done.test(result); attempt++) {
+            Thread.sleep(AWAIT_INTERVAL_MS);
+            result = search.call();
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws Exception {
+        client.shutdown();
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        service.close();
+    }
+}
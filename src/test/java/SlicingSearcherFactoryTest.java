@@ -0,0 +1,102 @@
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.example.search.service.SlicingSearcherFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlicingSearcherFactoryTest {
+
+    private static final int SEGMENTS = 6;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = new ByteBuffersDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer())
+                .setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                for (int i = 0; i < 10; i++) {
+                    Document doc = new Document();
+                    doc.add(new TextField("content", "sliced document " + i, Field.Store.NO));
+                    writer.addDocument(doc);
+                }
+                writer.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    void slicesFollowConfiguredLimits() throws IOException {
+        IndexSearcher onePerSlice = new SlicingSearcherFactory(executor, 1_000, 1).newSearcher(reader, null);
+        IndexSearcher threePerSlice = new SlicingSearcherFactory(executor, 1_000, 3).newSearcher(reader, null);
+
+        assertEquals(SEGMENTS, reader.leaves().size());
+        assertEquals(SEGMENTS, onePerSlice.getSlices().length);
+        assertEquals(2, threePerSlice.getSlices().length);
+    }
+
+    @Test
+    void concurrentSearcher_findsSameHitsAsSequential() throws IOException {
+        IndexSearcher sequential = new SlicingSearcherFactory(null, 1_000, 1).newSearcher(reader, null);
+        IndexSearcher concurrent = new SlicingSearcherFactory(executor, 1_000, 1).newSearcher(reader, null);
+        TermQuery query = new TermQuery(new Term("content", "sliced"));
+
+        assertNull(sequential.getExecutor());
+        assertEquals(sequential.count(query), concurrent.count(query));
+        assertEquals(SEGMENTS * 10, concurrent.search(query, 100).scoreDocs.length);
+    }
+
+    @Test
+    void topScoreDocs_runsSlicesOnTheExecutor() throws IOException {
+        AtomicInteger slices = new AtomicInteger();
+        Executor counting = task -> {
+            slices.incrementAndGet();
+            executor.execute(task);
+        };
+        IndexSearcher searcher = new SlicingSearcherFactory(counting, 1_000, 1).newSearcher(reader, null);
+        TermQuery query = new TermQuery(new Term("content", "sliced"));
+
+        TopDocs top = SlicingSearcherFactory.topScoreDocs(searcher, query, 5, null);
+        assertEquals(5, top.scoreDocs.length);
+        assertTrue(slices.get() > 0, "Slices should be searched on the executor");
+
+        // следующая страница продолжается после последнего документа первой
+        TopDocs next = SlicingSearcherFactory.topScoreDocs(searcher, query, 5, top.scoreDocs[4]);
+        assertEquals(5, next.scoreDocs.length);
+        assertNotEquals(top.scoreDocs[4].doc, next.scoreDocs[0].doc);
+    }
+}
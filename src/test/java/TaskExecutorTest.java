@@ -0,0 +1,86 @@
+import org.example.async.TaskType;
+import org.example.async.executor.TaskExecutor;
+import org.example.async.model.TaskState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskExecutorTest {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    void ioTasks_runConcurrentlyBeyondCoreCount() throws Exception {
+        try (TaskExecutor executor = new TaskExecutor()) {
+            // по 500 мс каждая: в пуле размером с число ядер это заняло бы не меньше 2 секунд
+            List<TaskState> tasks = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 4 * CORES; i++) {
+                TaskState task = new TaskState("io-" + i);
+                executor.submit(task, "", TaskType.IO_INTENSIVE);
+                tasks.add(task);
+            }
+            for (TaskState task : tasks) {
+                assertEquals("Processed: ", task.getResultFuture().get(5, TimeUnit.SECONDS));
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMs < 1_500, "IO tasks should not queue behind the core count, took " + elapsedMs + " ms");
+            tasks.forEach(task -> assertEquals(TaskState.Status.COMPLETED, task.getStatus()));
+        }
+    }
+
+    @Test
+    void cpuTasks_runOnPoolBoundedByCoreCount() throws Exception {
+        try (TaskExecutor executor = new TaskExecutor()) {
+            TaskState task = new TaskState("cpu");
+            executor.submit(task, "x", TaskType.CPU_INTENSIVE);
+            // зависимая стадия выполняется в потоке, завершившем задачу
+            CompletableFuture<Thread> worker = task.getResultFuture().thenApply(result -> Thread.currentThread());
+
+            Thread thread = worker.get(5, TimeUnit.SECONDS);
+            ForkJoinWorkerThread cpuThread = assertInstanceOf(ForkJoinWorkerThread.class, thread);
+            assertEquals(CORES, cpuThread.getPool().getParallelism());
+            assertEquals("Processed: X", task.getResultFuture().get());
+        }
+    }
+
+    @Test
+    void mixedTask_completesOnCpuPoolWithProcessedResult() throws Exception {
+        try (TaskExecutor executor = new TaskExecutor()) {
+            TaskState task = new TaskState("mixed");
+            executor.submit(task, "payload", TaskType.MIXED);
+            CompletableFuture<Thread> worker = task.getResultFuture().thenApply(result -> Thread.currentThread());
+
+            // ждём зависимую стадию: поток, ожидающий сам результат, может выполнить её сам
+            assertInstanceOf(ForkJoinWorkerThread.class, worker.get(5, TimeUnit.SECONDS));
+            assertEquals("Processed: PAYLOAD", task.getResultFuture().get());
+            assertEquals(TaskState.Status.COMPLETED, task.getStatus());
+        }
+    }
+
+    @Test
+    void close_finishesAcceptedTasksAndRejectsNewOnes() throws Exception {
+        TaskExecutor executor = new TaskExecutor();
+        TaskState io = new TaskState("io");
+        TaskState cpu = new TaskState("cpu");
+        executor.submit(io, "a", TaskType.IO_INTENSIVE);
+        executor.submit(cpu, "b", TaskType.CPU_INTENSIVE);
+
+        executor.close();
+
+        assertEquals("Processed: A", io.getResultFuture().get(5, TimeUnit.SECONDS));
+        assertEquals("Processed: B", cpu.getResultFuture().get(5, TimeUnit.SECONDS));
+        for (TaskType type : new TaskType[]{TaskType.IO_INTENSIVE, TaskType.CPU_INTENSIVE, TaskType.MIXED}) {
+            assertThrows(RejectedExecutionException.class,
+                    () -> executor.submit(new TaskState("late"), "c", type));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import org.example.async.executor.TaskRegistry;
+import org.example.async.model.TaskState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskRegistryTest {
+
+    @Test
+    void completedTasks_areEvictedAfterTtl() throws Exception {
+        try (TaskRegistry registry = new TaskRegistry(Duration.ofMillis(50), 1_000, 1_000_000)) {
+            TaskState task = registry.create("ttl");
+            task.getResultFuture().complete("done");
+            assertSame(task, registry.get("ttl"));
+
+            Thread.sleep(300);
+
+            assertNull(registry.get("ttl"), "Completed task should expire after TTL");
+            assertEquals(1, registry.stats().evictedByTtl());
+            assertEquals(0, registry.stats().retainedBytes());
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedCompletedTask_isEvictedWhenOverMaxEntries() {
+        try (TaskRegistry registry = new TaskRegistry(Duration.ofMinutes(1), 2, 1_000_000)) {
+            registry.create("a").getResultFuture().complete("a");
+            registry.create("b").getResultFuture().complete("b");
+            registry.get("a"); // "b" становится самым давним по обращению
+
+            registry.create("c").getResultFuture().complete("c");
+
+            assertNotNull(registry.get("a"));
+            assertNull(registry.get("b"));
+            assertNotNull(registry.get("c"));
+            assertEquals(1, registry.stats().evictedBySize());
+        }
+    }
+
+    @Test
+    void runningTasks_areNeverEvicted_andSubscribersStillGetResult() throws Exception {
+        try (TaskRegistry registry = new TaskRegistry(Duration.ofMinutes(1), 1, 1_000_000)) {
+            TaskState running = registry.create("running");
+            CompletableFuture<String> subscriber = running.getResultFuture().thenApply(r -> r);
+
+            registry.create("other").getResultFuture().complete("x".repeat(10));
+            assertNotNull(registry.get("running"), "Pending task must stay registered");
+
+            running.getResultFuture().complete("late result");
+            assertEquals("late result", subscriber.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void largeResults_areEvictedByRetainedBytes() {
+        try (TaskRegistry registry = new TaskRegistry(Duration.ofMinutes(1), 1_000, 10_000)) {
+            registry.create("big-1").getResultFuture().complete("x".repeat(3_000));
+            registry.create("big-2").getResultFuture().complete("x".repeat(3_000));
+
+            assertNull(registry.get("big-1"));
+            assertNotNull(registry.get("big-2"));
+            assertTrue(registry.stats().retainedBytes() <= 10_000);
+        }
+    }
+
+    @Test
+    void createIfAbsent_returnsExistingTaskForDuplicateId() {
+        try (TaskRegistry registry = new TaskRegistry()) {
+            TaskRegistry.Registration first = registry.createIfAbsent("client-id");
+            TaskRegistry.Registration retry = registry.createIfAbsent("client-id");
+
+            assertTrue(first.created());
+            assertFalse(retry.created());
+            assertSame(first.task(), retry.task());
+            assertEquals(1, registry.stats().deduplicated());
+        }
+    }
+}